@@ -0,0 +1,339 @@
+package com.ebook.reader.service;
+
+import com.ebook.reader.service.EpubPackage.ManifestItem;
+import com.ebook.reader.service.EpubPackage.NavPoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.*;
+
+/**
+ * The DOM-based package parser that {@link EpubPackageParser} replaced,
+ * kept unchanged as the baseline for {@link EpubPackageParserBenchmark}.
+ * Reads container.xml, the OPF and the NCX (or EPUB 3 nav document) of an
+ * archive into an {@link EpubPackage}.
+ */
+class DomEpubPackageParser {
+
+    private static final String DC_NAMESPACE = "http://purl.org/dc/elements/1.1/";
+    private static final String OPS_NAMESPACE = "http://www.idpf.org/2007/ops";
+    private static final String NCX_MEDIA_TYPE = "application/x-dtbncx+xml";
+
+    private DomEpubPackageParser() {}
+
+    static EpubPackage parse(File file, ZipFile zipFile) throws IOException {
+        ZipEntry opfEntry = findOpfFile(zipFile);
+        if (opfEntry == null) {
+            throw new IOException("OPF file not found in EPUB");
+        }
+
+        Document opfDoc;
+        try {
+            opfDoc = parseXmlEntry(zipFile, opfEntry);
+        } catch (Exception e) {
+            throw new IOException("Could not parse OPF: " + e.getMessage(), e);
+        }
+        String opfPath = opfEntry.getName();
+        String opfFolder = EpubPackage.parentFolder(opfPath);
+
+        String title = getMetadataValue(opfDoc, "title");
+        String creator = getMetadataValue(opfDoc, "creator");
+        String coverId = getCoverMetaId(opfDoc);
+
+        // Manifest
+        List<Element> itemElements = elements(opfDoc, "item");
+        List<String> hrefs = new ArrayList<>();
+        for (Element item : itemElements) {
+            String href = item.getAttribute("href");
+            if (!href.isEmpty()) hrefs.add(href);
+        }
+
+        EpubPathIndex pathIndex = EpubPathIndex.build(zipFile, opfFolder, hrefs);
+
+        Map<String, ManifestItem> manifest = new LinkedHashMap<>();
+        for (Element item : itemElements) {
+            String id = item.getAttribute("id");
+            String href = item.getAttribute("href");
+            if (id.isEmpty() || href.isEmpty()) continue;
+
+            manifest.put(id, new ManifestItem(id, href,
+                    item.getAttribute("media-type"),
+                    item.getAttribute("properties"),
+                    pathIndex.find(opfFolder, href, opfFolder)));
+        }
+
+        // Spine, keeping only chapters that exist in the archive
+        List<ManifestItem> spine = new ArrayList<>();
+        for (Element itemref : elements(opfDoc, "itemref")) {
+            ManifestItem item = manifest.get(itemref.getAttribute("idref"));
+            if (item != null && item.entryName != null) {
+                spine.add(item);
+            } else {
+                System.err.println("⚠ Skipping missing spine item: " + itemref.getAttribute("idref"));
+            }
+        }
+
+        List<NavPoint> toc = readToc(zipFile, opfDoc, manifest, pathIndex, opfFolder);
+
+        return new EpubPackage(file, opfPath, title, creator, coverId, manifest, spine, toc, pathIndex);
+    }
+
+    // ========== Table of contents ==========
+
+    private static List<NavPoint> readToc(ZipFile zipFile, Document opfDoc, Map<String, ManifestItem> manifest,
+                                          EpubPathIndex pathIndex, String opfFolder) {
+        List<NavPoint> toc = new ArrayList<>();
+
+        ZipEntry ncxEntry = findNcxEntry(zipFile, opfDoc, manifest);
+        if (ncxEntry != null) {
+            try {
+                Document ncxDoc = parseXmlEntry(zipFile, ncxEntry);
+                String ncxFolder = EpubPackage.parentFolder(ncxEntry.getName());
+                Element navMap = first(elements(ncxDoc, "navMap"));
+                if (navMap != null) {
+                    readNavPoints(navMap, 0, ncxFolder, opfFolder, pathIndex, toc);
+                }
+            } catch (Exception e) {
+                System.err.println("✗ Error reading NCX: " + e.getMessage());
+            }
+        }
+
+        if (toc.isEmpty()) {
+            ManifestItem navItem = null;
+            for (ManifestItem item : manifest.values()) {
+                if (item.hasProperty("nav") && item.entryName != null) {
+                    navItem = item;
+                    break;
+                }
+            }
+
+            if (navItem != null) {
+                try {
+                    Document navDoc = parseXmlEntry(zipFile, zipFile.getEntry(navItem.entryName));
+                    String navFolder = EpubPackage.parentFolder(navItem.entryName);
+                    Element nav = findTocNav(navDoc);
+                    if (nav != null) {
+                        Element list = firstChild(nav, "ol");
+                        if (list != null) {
+                            readNavList(list, 0, navFolder, opfFolder, pathIndex, toc);
+                        }
+                    }
+                } catch (Exception e) {
+                    System.err.println("✗ Error reading nav document: " + e.getMessage());
+                }
+            }
+        }
+
+        return toc;
+    }
+
+    private static ZipEntry findNcxEntry(ZipFile zipFile, Document opfDoc, Map<String, ManifestItem> manifest) {
+        Element spine = first(elements(opfDoc, "spine"));
+        if (spine != null) {
+            ManifestItem item = manifest.get(spine.getAttribute("toc"));
+            if (item != null && item.entryName != null) {
+                return zipFile.getEntry(item.entryName);
+            }
+        }
+
+        for (ManifestItem item : manifest.values()) {
+            if (NCX_MEDIA_TYPE.equals(item.mediaType) && item.entryName != null) {
+                return zipFile.getEntry(item.entryName);
+            }
+        }
+
+        ZipEntry entry = findFileInZip(zipFile, "toc.ncx");
+        return entry != null ? entry : findFileInZip(zipFile, ".ncx");
+    }
+
+    private static void readNavPoints(Element parent, int depth, String docFolder, String opfFolder,
+                                      EpubPathIndex pathIndex, List<NavPoint> toc) {
+        for (Element navPoint : children(parent, "navPoint")) {
+            String title = null;
+            Element label = firstChild(navPoint, "navLabel");
+            Element text = label != null ? firstChild(label, "text") : null;
+            if (text != null) {
+                title = text.getTextContent().trim();
+            }
+
+            Element content = firstChild(navPoint, "content");
+            String src = content != null ? content.getAttribute("src") : "";
+
+            addNavPoint(title, src, depth, docFolder, opfFolder, pathIndex, toc);
+            readNavPoints(navPoint, depth + 1, docFolder, opfFolder, pathIndex, toc);
+        }
+    }
+
+    private static Element findTocNav(Document navDoc) {
+        List<Element> navs = elements(navDoc, "nav");
+        for (Element nav : navs) {
+            String type = nav.getAttributeNS(OPS_NAMESPACE, "type");
+            if (type.isEmpty()) type = nav.getAttribute("epub:type");
+            if (Arrays.asList(type.trim().split("\\s+")).contains("toc")) {
+                return nav;
+            }
+        }
+        return first(navs);
+    }
+
+    private static void readNavList(Element list, int depth, String docFolder, String opfFolder,
+                                    EpubPathIndex pathIndex, List<NavPoint> toc) {
+        for (Element li : children(list, "li")) {
+            Element link = firstChild(li, "a");
+            if (link == null) link = firstChild(li, "span");
+
+            if (link != null) {
+                addNavPoint(link.getTextContent().trim(), link.getAttribute("href"),
+                        depth, docFolder, opfFolder, pathIndex, toc);
+            }
+
+            Element nested = firstChild(li, "ol");
+            if (nested != null) {
+                readNavList(nested, depth + 1, docFolder, opfFolder, pathIndex, toc);
+            }
+        }
+    }
+
+    private static void addNavPoint(String title, String src, int depth, String docFolder, String opfFolder,
+                                    EpubPathIndex pathIndex, List<NavPoint> toc) {
+        if (title == null || title.isEmpty()) {
+            title = "Chapter " + (toc.size() + 1);
+        }
+
+        String entryName = null;
+        String fragment = null;
+        if (src != null && !src.isEmpty()) {
+            entryName = pathIndex.find(docFolder, src, opfFolder);
+            int hash = src.indexOf('#');
+            if (hash >= 0) fragment = src.substring(hash + 1);
+        }
+
+        toc.add(new NavPoint(title, entryName, fragment, depth));
+    }
+
+    // ========== OPF helpers ==========
+
+    private static ZipEntry findOpfFile(ZipFile zipFile) {
+        ZipEntry containerEntry = zipFile.getEntry("META-INF/container.xml");
+        if (containerEntry != null) {
+            try {
+                Document containerDoc = parseXmlEntry(zipFile, containerEntry);
+                Element rootfile = first(elements(containerDoc, "rootfile"));
+                if (rootfile != null) {
+                    ZipEntry opfEntry = zipFile.getEntry(rootfile.getAttribute("full-path"));
+                    if (opfEntry != null) {
+                        return opfEntry;
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("✗ Error reading container.xml: " + e.getMessage());
+            }
+        }
+
+        return findFileInZip(zipFile, ".opf");
+    }
+
+    private static ZipEntry findFileInZip(ZipFile zipFile, String suffix) {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().endsWith(suffix)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static String getMetadataValue(Document opfDoc, String name) {
+        NodeList nodes = opfDoc.getElementsByTagNameNS(DC_NAMESPACE, name);
+        if (nodes.getLength() == 0) {
+            nodes = opfDoc.getElementsByTagName("dc:" + name);
+        }
+        if (nodes.getLength() == 0) {
+            nodes = opfDoc.getElementsByTagNameNS("*", name);
+        }
+
+        for (int i = 0; i < nodes.getLength(); i++) {
+            String value = nodes.item(i).getTextContent().trim();
+            if (!value.isEmpty()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The manifest id named by an EPUB 2 &lt;meta name="cover" content="..."/&gt;
+     */
+    private static String getCoverMetaId(Document opfDoc) {
+        for (Element meta : elements(opfDoc, "meta")) {
+            if ("cover".equals(meta.getAttribute("name"))) {
+                String content = meta.getAttribute("content");
+                return content.isEmpty() ? null : content;
+            }
+        }
+        return null;
+    }
+
+    private static Document parseXmlEntry(ZipFile zipFile, ZipEntry entry) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", false);
+        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        try (InputStream is = zipFile.getInputStream(entry)) {
+            return builder.parse(is);
+        }
+    }
+
+    // ========== DOM helpers (namespace-agnostic, by local name) ==========
+
+    private static List<Element> elements(Document doc, String localName) {
+        NodeList nodes = doc.getElementsByTagNameNS("*", localName);
+        if (nodes.getLength() == 0) {
+            nodes = doc.getElementsByTagName(localName);
+        }
+
+        List<Element> result = new ArrayList<>(nodes.getLength());
+        for (int i = 0; i < nodes.getLength(); i++) {
+            result.add((Element) nodes.item(i));
+        }
+        return result;
+    }
+
+    private static List<Element> children(Element parent, String localName) {
+        List<Element> result = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && localName.equals(localName(element))) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    private static Element firstChild(Element parent, String localName) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && localName.equals(localName(element))) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private static String localName(Element element) {
+        return element.getLocalName() != null ? element.getLocalName() : element.getTagName();
+    }
+
+    private static Element first(List<Element> elements) {
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+}
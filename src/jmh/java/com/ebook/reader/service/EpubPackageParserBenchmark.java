@@ -0,0 +1,139 @@
+package com.ebook.reader.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * One full package parse (container.xml, OPF, NCX and the path index) of a
+ * generated EPUB: the StAX {@link EpubPackageParser} against the DOM parser
+ * it replaced.
+ *
+ * Run with: mvn -Pjmh test-compile exec:exec -Djmh.args=EpubPackageParserBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class EpubPackageParserBenchmark {
+
+    /** Spine items, each with a TOC entry; TOC entries are nested ten to a part */
+    @Param({"50", "5000"})
+    public int chapters;
+
+    private File file;
+    private ZipFile zipFile;
+
+    @Setup
+    public void writeEpub() throws IOException {
+        file = File.createTempFile("parser-benchmark", ".epub");
+        file.deleteOnExit();
+
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            put(zip, "mimetype", "application/epub+zip");
+            put(zip, "META-INF/container.xml", """
+                    <?xml version="1.0"?>
+                    <container version="1.0" xmlns="urn:oasis:names:tc:opendocument:xmlns:container">
+                      <rootfiles>
+                        <rootfile full-path="OEBPS/content.opf" media-type="application/oebps-package+xml"/>
+                      </rootfiles>
+                    </container>
+                    """);
+            put(zip, "OEBPS/content.opf", opf());
+            put(zip, "OEBPS/toc.ncx", ncx());
+            put(zip, "OEBPS/images/cover.jpg", "");
+            for (int i = 0; i < chapters; i++) {
+                put(zip, "OEBPS/text/ch" + i + ".xhtml", "<html><body><p>Chapter " + i + "</p></body></html>");
+            }
+        }
+        zipFile = new ZipFile(file);
+    }
+
+    @TearDown
+    public void deleteEpub() throws IOException {
+        zipFile.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public EpubPackage stax() throws IOException {
+        return EpubPackageParser.parse(file, zipFile);
+    }
+
+    @Benchmark
+    public EpubPackage dom() throws IOException {
+        return DomEpubPackageParser.parse(file, zipFile);
+    }
+
+    private String opf() {
+        StringBuilder manifest = new StringBuilder();
+        StringBuilder spine = new StringBuilder();
+        for (int i = 0; i < chapters; i++) {
+            manifest.append("    <item id=\"ch").append(i).append("\" href=\"text/ch").append(i)
+                    .append(".xhtml\" media-type=\"application/xhtml+xml\"/>\n");
+            spine.append("    <itemref idref=\"ch").append(i).append("\"/>\n");
+        }
+
+        return """
+                <?xml version="1.0" encoding="utf-8"?>
+                <package xmlns="http://www.idpf.org/2007/opf" version="2.0" unique-identifier="id">
+                  <metadata xmlns:dc="http://purl.org/dc/elements/1.1/">
+                    <dc:title>Benchmark Book</dc:title>
+                    <dc:creator>Some Author</dc:creator>
+                    <dc:identifier id="id">benchmark</dc:identifier>
+                    <meta name="cover" content="cover"/>
+                  </metadata>
+                  <manifest>
+                    <item id="ncx" href="toc.ncx" media-type="application/x-dtbncx+xml"/>
+                    <item id="cover" href="images/cover.jpg" media-type="image/jpeg"/>
+                """ + manifest + """
+                  </manifest>
+                  <spine toc="ncx">
+                """ + spine + """
+                  </spine>
+                </package>
+                """;
+    }
+
+    private String ncx() {
+        StringBuilder navMap = new StringBuilder();
+        int playOrder = 1;
+        for (int part = 0; part * 10 < chapters; part++) {
+            navMap.append("<navPoint id=\"part").append(part).append("\" playOrder=\"").append(playOrder++)
+                    .append("\"><navLabel><text>Part ").append(part + 1).append("</text></navLabel>")
+                    .append("<content src=\"text/ch").append(part * 10).append(".xhtml\"/>\n");
+            for (int i = part * 10; i < Math.min(chapters, part * 10 + 10); i++) {
+                navMap.append("  <navPoint id=\"np").append(i).append("\" playOrder=\"").append(playOrder++)
+                        .append("\"><navLabel><text>Chapter ").append(i + 1).append("</text></navLabel>")
+                        .append("<content src=\"text/ch").append(i).append(".xhtml#start\"/></navPoint>\n");
+            }
+            navMap.append("</navPoint>\n");
+        }
+
+        return """
+                <?xml version="1.0" encoding="utf-8"?>
+                <ncx xmlns="http://www.daisy.org/z3986/2005/ncx/" version="2005-1">
+                  <head><meta name="dtb:uid" content="benchmark"/></head>
+                  <docTitle><text>Benchmark Book</text></docTitle>
+                  <navMap>
+                """ + navMap + """
+                  </navMap>
+                </ncx>
+                """;
+    }
+
+    private static void put(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
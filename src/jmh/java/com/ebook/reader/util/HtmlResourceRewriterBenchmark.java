@@ -0,0 +1,117 @@
+package com.ebook.reader.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewriting the resource references of one chapter: the single-pass
+ * {@link HtmlResourceRewriter} against the three regex passes EpubService
+ * used before it.
+ *
+ * Run with: mvn -Pjmh test-compile exec:exec -Djmh.args=HtmlResourceRewriterBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class HtmlResourceRewriterBenchmark {
+
+    /** Images in the chapter; 0 is a plain text chapter */
+    @Param({"0", "20", "2000"})
+    public int images;
+
+    private String chapter;
+
+    // Stands in for the archive lookup, which costs the same for both rewriters
+    private static final HtmlResourceRewriter.UrlResolver RESOLVER =
+            reference -> "epub://book/OEBPS/" + reference;
+
+    @Setup
+    public void buildChapter() {
+        StringBuilder html = new StringBuilder();
+        html.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n")
+                .append("<html xmlns=\"http://www.w3.org/1999/xhtml\" xmlns:xlink=\"http://www.w3.org/1999/xlink\">\n")
+                .append("<head><title>Chapter</title>")
+                .append("<link rel=\"stylesheet\" type=\"text/css\" href=\"../styles/book.css\"/></head>\n<body>\n");
+
+        int paragraphs = Math.max(200, images * 2);
+        for (int i = 0; i < paragraphs; i++) {
+            html.append("<p class=\"text\">Paragraph ").append(i)
+                    .append(" of the chapter, with <em>some</em> inline markup and enough words to look like prose.</p>\n");
+            if (i % 2 == 0 && i / 2 < images) {
+                int image = i / 2;
+                if (image % 4 == 3) {
+                    html.append("<svg width=\"600\" height=\"800\"><image width=\"600\" height=\"800\" xlink:href=\"../images/img")
+                            .append(image).append(".jpg\"/></svg>\n");
+                } else {
+                    html.append("<div class=\"figure\"><img alt=\"Figure ").append(image)
+                            .append("\" src=\"../images/img").append(image).append(".jpg\"/></div>\n");
+                }
+            }
+        }
+        html.append("</body>\n</html>\n");
+        chapter = html.toString();
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return HtmlResourceRewriter.rewrite(chapter, RESOLVER);
+    }
+
+    @Benchmark
+    public String regexPasses() {
+        return regexRewrite(chapter, RESOLVER);
+    }
+
+    /**
+     * The previous rewriter from EpubService.processImages, minus its
+     * per-image logging. It only handled img and SVG image references.
+     */
+    static String regexRewrite(String htmlContent, HtmlResourceRewriter.UrlResolver resolver) {
+        String processed = htmlContent;
+
+        String[] imgPatterns = {
+                "(?i)<img([^>]*?)src\\s*=\\s*[\"']([^\"']+)[\"']([^>]*?)>",
+                "(?i)<image([^>]*?)href\\s*=\\s*[\"']([^\"']+)[\"']([^>]*?)>",
+                "(?i)<image([^>]*?)xlink:href\\s*=\\s*[\"']([^\"']+)[\"']([^>]*?)>"
+        };
+
+        for (String patternStr : imgPatterns) {
+            Pattern pattern = Pattern.compile(patternStr);
+            Matcher matcher = pattern.matcher(processed);
+            StringBuffer result = new StringBuffer();
+
+            while (matcher.find()) {
+                String beforeSrc = matcher.group(1);
+                String imgSrc = matcher.group(2);
+                String afterSrc = matcher.group(3);
+
+                String resourceUrl = imgSrc.startsWith("data:") ? null : resolver.resolve(imgSrc);
+                if (resourceUrl == null) {
+                    matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group(0)));
+                    continue;
+                }
+
+                String newTag;
+                if (patternStr.contains("xlink:href")) {
+                    newTag = String.format("<image%sxlink:href=\"%s\"%s>", beforeSrc, resourceUrl, afterSrc);
+                } else if (patternStr.contains("<image")) {
+                    newTag = String.format("<image%shref=\"%s\"%s>", beforeSrc, resourceUrl, afterSrc);
+                } else {
+                    newTag = String.format("<img%ssrc=\"%s\"%s>", beforeSrc, resourceUrl, afterSrc);
+                }
+                matcher.appendReplacement(result, Matcher.quoteReplacement(newTag));
+            }
+
+            matcher.appendTail(result);
+            processed = result.toString();
+        }
+
+        return processed;
+    }
+}
@@ -1,6 +1,11 @@
 package com.ebook.reader;
 
 import com.ebook.reader.dao.DatabaseManager;
+import com.ebook.reader.service.EpubResourceProtocol;
+import com.ebook.reader.service.EpubService;
+import com.ebook.reader.service.LibraryFolderWatcher;
+import com.ebook.reader.service.LibraryTextIndexer;
+import com.ebook.reader.service.PdfDocumentPool;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -22,12 +27,22 @@ public class Main extends Application {
         System.out.println("  Starting application...");
         System.out.println("=================================\n");
 
+        // Serve EPUB resources to the WebView straight from the archive
+        EpubResourceProtocol.install();
+        new Thread(EpubService::purgeLegacyTempDirs, "temp-cleanup").start();
+
         // Initialize database
         DatabaseManager dbManager = DatabaseManager.getInstance();
         dbManager.initializeDatabase();
         dbManager.checkAndUpdateSchema();
         dbManager.printDatabaseStats();
 
+        // Sync watched library folders in the background
+        LibraryFolderWatcher.getInstance().start();
+
+        // Index book contents for library-wide text search
+        LibraryTextIndexer.getInstance().start();
+
         // Load library view
         FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource("/fxml/library.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 1200, 800);
@@ -50,6 +65,9 @@ public class Main extends Application {
 
         stage.setOnCloseRequest(event -> {
             System.out.println("\n→ Closing application...");
+            LibraryFolderWatcher.getInstance().stop();
+            LibraryTextIndexer.getInstance().stop();
+            PdfDocumentPool.getInstance().closeAll();
             DatabaseManager.getInstance().close();
             System.out.println("✓ Application closed");
         });
@@ -80,6 +98,9 @@ public class Main extends Application {
     @Override
     public void stop() {
         System.out.println("\n→ Application stopping...");
+        LibraryFolderWatcher.getInstance().stop();
+        LibraryTextIndexer.getInstance().stop();
+        PdfDocumentPool.getInstance().closeAll();
         DatabaseManager.getInstance().close();
         System.out.println("✓ Cleanup complete");
     }
@@ -2,9 +2,15 @@ package com.ebook.reader.controller;
 
 import com.ebook.reader.Main;
 import com.ebook.reader.dao.BookDAO;
+import com.ebook.reader.dao.BookTextDAO;
 import com.ebook.reader.model.Book;
 import com.ebook.reader.service.EpubService;
+import com.ebook.reader.service.LibraryFolderWatcher;
+import com.ebook.reader.service.LibraryImportService;
 import com.ebook.reader.service.PdfService;
+import com.ebook.reader.util.CoverImageCache;
+import com.ebook.reader.util.CoverThumbnails;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -15,26 +21,46 @@ import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.Screen;
 import javafx.stage.FileChooser;
+import javafx.util.Duration;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class LibraryController {
 
     @FXML private TextField searchField;
     @FXML private ComboBox<String> filterComboBox;
-    @FXML private FlowPane bookGrid;
+    @FXML private ListView<List<Book>> bookGrid;
     @FXML private Label statusLabel;
+    @FXML private ProgressBar importProgressBar;
+    @FXML private Button cancelImportButton;
+    @FXML private VBox textResultsPane;
+    @FXML private Label textResultsLabel;
+    @FXML private ListView<BookTextDAO.TextHit> textResultsView;
 
     private BookDAO bookDAO;
+    private BookTextDAO bookTextDAO;
     private EpubService epubService;
     private PdfService pdfService;
     private com.ebook.reader.dao.UserSettingsDAO settingsDAO;
+    private LibraryImportService importService;
+    private LibraryImportService.ImportJob currentImport;
+    private List<Book> displayedBooks = List.of();
+    private Map<Integer, Double> progressByBook = Map.of();
+    private int gridColumns = CARDS_PER_ROW;
+    private Image defaultCover;
+    private final PauseTransition textSearchDelay = new PauseTransition(Duration.millis(250));
+    private final AtomicInteger textSearchGeneration = new AtomicInteger();
     private String currentFilterType = "All Books"; // Track current filter
     private String currentFilterValue = null; // Track current author/etc
+    private static boolean thumbnailsChecked = false;
 
     // Constants for layout - PERFECT FIT
     private static final int COVER_WIDTH = 150;
@@ -45,15 +71,18 @@ public class LibraryController {
     private static final int CARD_HEIGHT = 500; // Increased for perfect fit
     private static final int CARDS_PER_ROW = 5;
     private static final int CARD_GAP = 20;
+    private static final int GRID_PADDING = 30;
 
     @FXML
     public void initialize() {
         System.out.println("→ LibraryController.initialize() called");
 
         bookDAO = new BookDAO();
+        bookTextDAO = new BookTextDAO();
         epubService = new EpubService();
         pdfService = new PdfService();
         settingsDAO = new com.ebook.reader.dao.UserSettingsDAO();
+        importService = new LibraryImportService(epubService, pdfService, bookDAO);
 
         System.out.println("  bookGrid: " + (bookGrid != null ? "OK" : "NULL"));
         System.out.println("  filterComboBox: " + (filterComboBox != null ? "OK" : "NULL"));
@@ -63,12 +92,21 @@ public class LibraryController {
         // Load and apply default theme
         loadAndApplyDefaultTheme();
 
-        // Setup FlowPane for centered layout with max 5 per row
+        // Virtualized grid: a list of card rows, max 5 per row
         if (bookGrid != null) {
-            bookGrid.setHgap(CARD_GAP);
-            bookGrid.setVgap(CARD_GAP);
-            bookGrid.setAlignment(Pos.TOP_CENTER);
-            bookGrid.setPrefWrapLength((CARD_WIDTH + CARD_GAP) * CARDS_PER_ROW);
+            bookGrid.setCellFactory(lv -> new BookRowCell());
+            bookGrid.setFixedCellSize(CARD_HEIGHT + CARD_GAP);
+            bookGrid.setFocusTraversable(false);
+
+            Label emptyLabel = new Label("No books in library\nClick 'Add Book' to import ebooks");
+            emptyLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: gray; -fx-text-alignment: center;");
+            bookGrid.setPlaceholder(emptyLabel);
+
+            bookGrid.widthProperty().addListener((obs, oldVal, newVal) -> {
+                if (columnsForWidth(newVal.doubleValue()) != gridColumns) {
+                    rebuildRows();
+                }
+            });
         }
 
         if (filterComboBox != null) {
@@ -86,9 +124,23 @@ public class LibraryController {
         if (searchField != null) {
             searchField.textProperty().addListener((obs, oldVal, newVal) -> searchBooks(newVal));
         }
+        setupTextSearchResults();
 
         loadAllBooks();
 
+        // The view is rebuilt on every return from the reader; covers only need checking once per run
+        if (!thumbnailsChecked) {
+            thumbnailsChecked = true;
+            generateMissingThumbnails();
+        }
+
+        // Refresh the grid when watched library folders change
+        LibraryFolderWatcher.getInstance().setChangeListener(() -> Platform.runLater(() -> {
+            if (searchField == null || searchField.getText() == null || searchField.getText().isBlank()) {
+                filterBooks();
+            }
+        }));
+
         System.out.println("✓ LibraryController initialized");
     }
 
@@ -105,74 +157,170 @@ public class LibraryController {
         List<File> selectedFiles = fileChooser.showOpenMultipleDialog(Main.getPrimaryStage());
 
         if (selectedFiles != null && !selectedFiles.isEmpty()) {
-            new Thread(() -> {
-                int successCount = 0;
-                int errorCount = 0;
+            startImport(selectedFiles);
+        }
+    }
 
-                for (File file : selectedFiles) {
-                    if (importBook(file)) {
-                        successCount++;
-                    } else {
-                        errorCount++;
-                    }
-                }
+    /**
+     * Import files in the background, showing progress in the status bar
+     */
+    private void startImport(List<File> files) {
+        if (currentImport != null && !currentImport.isDone()) {
+            if (statusLabel != null) {
+                statusLabel.setText("An import is already running");
+            }
+            return;
+        }
+
+        setImportControlsVisible(true);
+        if (importProgressBar != null) {
+            importProgressBar.setProgress(0);
+        }
+        if (statusLabel != null) {
+            statusLabel.setText("Importing " + files.size() + " book(s)...");
+        }
 
-                final int finalSuccess = successCount;
-                final int finalError = errorCount;
+        currentImport = importService.importFiles(files, new LibraryImportService.ImportListener() {
+            @Override
+            public void onFileImported(File file, boolean success, int completed, int total) {
+                Platform.runLater(() -> {
+                    if (importProgressBar != null) {
+                        importProgressBar.setProgress((double) completed / total);
+                    }
+                    if (statusLabel != null) {
+                        statusLabel.setText(String.format("Importing %d/%d: %s%s",
+                                completed, total, file.getName(), success ? "" : " (failed)"));
+                    }
+                });
+            }
 
+            @Override
+            public void onFinished(LibraryImportService.ImportSummary summary) {
                 Platform.runLater(() -> {
+                    setImportControlsVisible(false);
                     loadAllBooks();
-                    String message = String.format("Imported %d book(s)", finalSuccess);
-                    if (finalError > 0) {
-                        message += String.format(" (%d failed)", finalError);
+                    generateMissingThumbnails();
+
+                    String message = String.format("Imported %d book(s)", summary.imported);
+                    if (summary.failed > 0) {
+                        message += String.format(" (%d failed)", summary.failed);
+                    }
+                    if (summary.cancelled) {
+                        message += String.format(" - cancelled, %d skipped", summary.skipped);
                     }
+                    message += String.format(" in %.1fs, %.1f books/sec",
+                            summary.elapsedMillis / 1000.0, summary.getBooksPerSecond());
+
                     if (statusLabel != null) {
                         statusLabel.setText(message);
                     }
                 });
-            }).start();
-
-            if (statusLabel != null) {
-                statusLabel.setText("Importing " + selectedFiles.size() + " book(s)...");
             }
-        }
+        });
     }
 
-    private boolean importBook(File file) {
+    /**
+     * Manage the folders that are watched and imported automatically
+     */
+    @FXML
+    private void handleLibraryFolders() {
+        LibraryFolderWatcher watcher = LibraryFolderWatcher.getInstance();
+
+        ListView<String> folderList = new ListView<>();
+        folderList.setPrefSize(500, 250);
         try {
-            String filePath = file.getAbsolutePath();
-            String extension = getFileExtension(filePath);
+            folderList.getItems().setAll(watcher.getFolders());
+        } catch (SQLException e) {
+            System.err.println("✗ Error loading library folders: " + e.getMessage());
+        }
 
-            System.out.println("→ Importing: " + file.getName());
+        Button addBtn = new Button("➕ Add Folder...");
+        addBtn.setOnAction(e -> {
+            DirectoryChooser chooser = new DirectoryChooser();
+            chooser.setTitle("Select Library Folder");
+            File folder = chooser.showDialog(Main.getPrimaryStage());
+            if (folder == null) return;
 
-            Book book;
-            if (extension.equalsIgnoreCase("epub")) {
-                book = epubService.extractMetadata(filePath);
-            } else if (extension.equalsIgnoreCase("pdf")) {
-                book = pdfService.extractMetadata(filePath);
-            } else {
-                System.err.println("✗ Unsupported format: " + extension);
-                return false;
+            try {
+                watcher.addFolder(folder.getAbsolutePath());
+                folderList.getItems().setAll(watcher.getFolders());
+                if (statusLabel != null) {
+                    statusLabel.setText("Scanning " + folder.getName() + "...");
+                }
+            } catch (SQLException ex) {
+                showError("Library Folders", "Could not add folder: " + ex.getMessage());
             }
+        });
 
-            int bookId = bookDAO.addBook(book);
-            System.out.println("✓ Book imported: " + book.getTitle() + " (ID: " + bookId + ")");
-            return true;
+        Button removeBtn = new Button("Remove");
+        removeBtn.disableProperty().bind(folderList.getSelectionModel().selectedItemProperty().isNull());
+        removeBtn.setOnAction(e -> {
+            String selected = folderList.getSelectionModel().getSelectedItem();
+            try {
+                watcher.removeFolder(selected);
+                folderList.getItems().setAll(watcher.getFolders());
+            } catch (SQLException ex) {
+                showError("Library Folders", "Could not remove folder: " + ex.getMessage());
+            }
+        });
 
-        } catch (SQLException e) {
-            System.err.println("✗ Database error importing book: " + e.getMessage());
-            e.printStackTrace();
-            Platform.runLater(() -> {
-                if (statusLabel != null) {
-                    statusLabel.setText("Error importing: " + file.getName());
-                }
-            });
-            return false;
-        } catch (Exception e) {
-            System.err.println("✗ Error importing book: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+        Button rescanBtn = new Button("⟳ Rescan Now");
+        rescanBtn.setOnAction(e -> {
+            watcher.rescanAll();
+            if (statusLabel != null) {
+                statusLabel.setText("Rescanning library folders...");
+            }
+        });
+
+        HBox buttons = new HBox(8, addBtn, removeBtn, rescanBtn);
+        Label hint = new Label("New and changed books in these folders are imported automatically.\n"
+                + "Books whose files disappear are marked as missing.");
+        hint.setStyle("-fx-font-size: 11px; -fx-text-fill: #666;");
+
+        VBox content = new VBox(10, folderList, buttons, hint);
+        content.setPadding(new Insets(10));
+
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.setTitle("Library Folders");
+        dialog.setHeaderText("Watched Library Folders");
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        dialog.showAndWait();
+    }
+
+    @FXML
+    private void handleCancelImport() {
+        if (currentImport != null && !currentImport.isDone()) {
+            currentImport.cancel();
+            if (statusLabel != null) {
+                statusLabel.setText("Cancelling import...");
+            }
+        }
+    }
+
+    private void setImportControlsVisible(boolean visible) {
+        if (importProgressBar != null) {
+            importProgressBar.setVisible(visible);
+            importProgressBar.setManaged(visible);
+        }
+        if (cancelImportButton != null) {
+            cancelImportButton.setVisible(visible);
+            cancelImportButton.setManaged(visible);
+        }
+    }
+
+    /**
+     * Generate thumbnails, in the background, for the covers of the books
+     * on display that have none yet
+     */
+    private void generateMissingThumbnails() {
+        List<String> coverPaths = new ArrayList<>();
+        for (Book book : displayedBooks) {
+            if (book.getCoverPath() != null) {
+                coverPaths.add(book.getCoverPath());
+            }
         }
+        CoverThumbnails.generateMissingAsync(coverPaths);
     }
 
     private void loadAllBooks() {
@@ -358,6 +506,8 @@ public class LibraryController {
     }
 
     private void searchBooks(String query) {
+        scheduleTextSearch(query);
+
         if (query == null || query.trim().isEmpty()) {
             loadAllBooks();
             return;
@@ -375,6 +525,101 @@ public class LibraryController {
         }
     }
 
+    // ========== FULL-TEXT SEARCH ==========
+
+    private void setupTextSearchResults() {
+        if (textResultsView == null) return;
+
+        textResultsView.setCellFactory(lv -> new ListCell<BookTextDAO.TextHit>() {
+            {
+                setWrapText(true);
+                setPrefWidth(0); // wrap to the list's width instead of growing it
+            }
+
+            @Override
+            protected void updateItem(BookTextDAO.TextHit hit, boolean empty) {
+                super.updateItem(hit, empty);
+                if (empty || hit == null) {
+                    setText(null);
+                } else {
+                    String location = "PDF".equalsIgnoreCase(hit.fileType)
+                            ? "Page " + (hit.section + 1)
+                            : "Chapter " + (hit.section + 1);
+                    setText(hit.title + " · " + location + "\n" + hit.snippet);
+                }
+            }
+        });
+
+        textResultsView.setOnMouseClicked(event -> {
+            BookTextDAO.TextHit hit = textResultsView.getSelectionModel().getSelectedItem();
+            if (hit != null) {
+                openTextHit(hit);
+            }
+        });
+    }
+
+    /**
+     * Search book contents once typing pauses; titles and authors are
+     * filtered immediately as before
+     */
+    private void scheduleTextSearch(String query) {
+        int generation = textSearchGeneration.incrementAndGet();
+        if (textResultsPane == null) return;
+
+        if (query == null || query.trim().length() < 3) {
+            textSearchDelay.stop();
+            setTextResultsVisible(false);
+            return;
+        }
+
+        String trimmed = query.trim();
+        textSearchDelay.setOnFinished(e -> runTextSearch(trimmed, generation));
+        textSearchDelay.playFromStart();
+    }
+
+    private void runTextSearch(String query, int generation) {
+        Thread thread = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                List<BookTextDAO.TextHit> hits = bookTextDAO.search(query, 100);
+                System.out.println("✓ Text search for \"" + query + "\": " + hits.size() + " hit(s) in "
+                        + (System.currentTimeMillis() - start) + "ms");
+
+                Platform.runLater(() -> {
+                    if (textSearchGeneration.get() != generation) return;
+                    textResultsView.getItems().setAll(hits);
+                    textResultsLabel.setText("📄 " + (hits.size() == 100 ? "Top 100" : String.valueOf(hits.size()))
+                            + " match(es) inside books");
+                    setTextResultsVisible(!hits.isEmpty());
+                });
+            } catch (SQLException e) {
+                System.err.println("✗ Error searching book text: " + e.getMessage());
+            }
+        }, "library-text-search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void setTextResultsVisible(boolean visible) {
+        textResultsPane.setVisible(visible);
+        textResultsPane.setManaged(visible);
+        if (!visible) {
+            textResultsView.getItems().clear();
+        }
+    }
+
+    private void openTextHit(BookTextDAO.TextHit hit) {
+        try {
+            Book book = bookDAO.getBookById(hit.bookId);
+            if (book != null) {
+                openBook(book, hit.section);
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error opening search result: " + e.getMessage());
+            showError("Error", "Could not open book: " + e.getMessage());
+        }
+    }
+
     private void displayBooks(List<Book> books) {
         System.out.println("→ displayBooks() called with " + books.size() + " books");
 
@@ -383,179 +628,286 @@ public class LibraryController {
             return;
         }
 
-        bookGrid.getChildren().clear();
-
-        if (books.isEmpty()) {
-            Label emptyLabel = new Label("No books in library\nClick 'Add Book' to import ebooks");
-            emptyLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: gray; -fx-text-alignment: center;");
-            bookGrid.getChildren().add(emptyLabel);
-            System.out.println("  Displayed empty message");
-            return;
+        displayedBooks = books;
+        try {
+            progressByBook = bookDAO.getAllProgressPercentages();
+        } catch (SQLException e) {
+            System.err.println("✗ Error loading reading progress: " + e.getMessage());
+            progressByBook = Map.of();
         }
 
-        for (Book book : books) {
-            try {
-                VBox bookCard = createBookCard(book);
-                bookGrid.getChildren().add(bookCard);
-                System.out.println("  Added card for: " + book.getTitle());
-            } catch (Exception e) {
-                System.err.println("✗ Error creating card for " + book.getTitle() + ": " + e.getMessage());
-                e.printStackTrace();
-            }
+        rebuildRows();
+        System.out.println("✓ Displayed " + books.size() + " books");
+    }
+
+    /**
+     * Split the displayed books into rows that fit the current grid width.
+     * Only the rows scrolled into view get cells, and cells are reused.
+     */
+    private void rebuildRows() {
+        int columns = columnsForWidth(bookGrid.getWidth());
+        gridColumns = columns;
+
+        List<List<Book>> rows = new ArrayList<>((displayedBooks.size() + columns - 1) / columns);
+        for (int i = 0; i < displayedBooks.size(); i += columns) {
+            rows.add(displayedBooks.subList(i, Math.min(i + columns, displayedBooks.size())));
         }
+        bookGrid.getItems().setAll(rows);
+    }
 
-        System.out.println("✓ Displayed " + books.size() + " book cards");
+    private int columnsForWidth(double width) {
+        if (width <= 0) {
+            return CARDS_PER_ROW;
+        }
+        // Leave room for the grid padding and the vertical scroll bar
+        double available = width - 2 * GRID_PADDING - 20;
+        int columns = (int) ((available + CARD_GAP) / (CARD_WIDTH + CARD_GAP));
+        return Math.max(1, Math.min(CARDS_PER_ROW, columns));
     }
 
-    private VBox createBookCard(Book book) {
-        // PERFECT FIT CARD
-        VBox card = new VBox(8);
-        card.setAlignment(Pos.TOP_CENTER);
-        card.setPadding(new Insets(CARD_PADDING));
-        card.getStyleClass().add("book-card");
-
-        // Fixed dimensions
-        card.setPrefWidth(CARD_WIDTH);
-        card.setMinWidth(CARD_WIDTH);
-        card.setMaxWidth(CARD_WIDTH);
-        card.setPrefHeight(CARD_HEIGHT);
-        card.setMinHeight(CARD_HEIGHT);
-        card.setMaxHeight(CARD_HEIGHT);
-
-        // === COVER IMAGE ===
-        ImageView coverView = new ImageView();
-        coverView.setFitWidth(COVER_WIDTH);
-        coverView.setFitHeight(COVER_HEIGHT);
-        coverView.setPreserveRatio(false);
-        coverView.setSmooth(true);
-
-        if (book.getCoverPath() != null && new File(book.getCoverPath()).exists()) {
-            try {
-                Image coverImage = new Image(new FileInputStream(book.getCoverPath()));
-                coverView.setImage(coverImage);
-            } catch (Exception e) {
-                setDefaultCover(coverView);
+    /**
+     * One row of the virtualized grid. Card nodes are kept and rebound to
+     * other books as the row cell is reused while scrolling.
+     */
+    private class BookRowCell extends ListCell<List<Book>> {
+        private final HBox row = new HBox(CARD_GAP);
+        private final List<BookCard> cards = new ArrayList<>();
+
+        BookRowCell() {
+            row.setAlignment(Pos.TOP_CENTER);
+            setText(null);
+        }
+
+        @Override
+        protected void updateItem(List<Book> books, boolean empty) {
+            super.updateItem(books, empty);
+
+            if (empty || books == null) {
+                setGraphic(null);
+                return;
             }
-        } else {
-            setDefaultCover(coverView);
+
+            while (cards.size() < books.size()) {
+                cards.add(new BookCard());
+            }
+
+            List<VBox> visibleCards = new ArrayList<>(books.size());
+            for (int i = 0; i < books.size(); i++) {
+                BookCard card = cards.get(i);
+                card.setBook(books.get(i));
+                visibleCards.add(card.root);
+            }
+            row.getChildren().setAll(visibleCards);
+            setGraphic(row);
         }
+    }
 
-        // === TITLE ===
-        Label titleLabel = new Label(book.getTitle());
-        titleLabel.setWrapText(true);
-        titleLabel.setMaxWidth(ELEMENT_WIDTH);
-        titleLabel.setMinHeight(40);
-        titleLabel.setMaxHeight(40);
-        titleLabel.getStyleClass().add("book-title");
-        titleLabel.setAlignment(Pos.CENTER);
-
-        // === AUTHOR ===
-        Label authorLabel = new Label(book.getAuthor());
-        authorLabel.setWrapText(true);
-        authorLabel.setMaxWidth(ELEMENT_WIDTH);
-        authorLabel.setMinHeight(30);
-        authorLabel.setMaxHeight(30);
-        authorLabel.getStyleClass().add("book-author");
-        authorLabel.setAlignment(Pos.CENTER);
-
-        // === SPACER ===
-        Region spacer = new Region();
-        VBox.setVgrow(spacer, Priority.ALWAYS);
-
-        // === PROGRESS BAR ===
-        VBox progressBox = new VBox(5);
-        progressBox.setAlignment(Pos.CENTER);
-        progressBox.setMinHeight(40);
-        progressBox.setMaxHeight(40);
-        progressBox.setPrefWidth(ELEMENT_WIDTH);
+    /**
+     * Card showing one book; created once per grid slot and rebound on reuse
+     */
+    private class BookCard {
+        private final VBox root = new VBox(8);
+        private final ImageView coverView = new ImageView();
+        private final Label titleLabel = new Label();
+        private final Label authorLabel = new Label();
+        private final VBox progressBox = new VBox(5);
+        private final ProgressBar progressBar = new ProgressBar();
+        private final Label progressLabel = new Label();
+        private final Button favBtn = new Button();
+        private Book book;
+        private Image pendingCover;
+
+        BookCard() {
+            // PERFECT FIT CARD
+            root.setAlignment(Pos.TOP_CENTER);
+            root.setPadding(new Insets(CARD_PADDING));
+            root.getStyleClass().add("book-card");
+
+            // Fixed dimensions
+            root.setPrefWidth(CARD_WIDTH);
+            root.setMinWidth(CARD_WIDTH);
+            root.setMaxWidth(CARD_WIDTH);
+            root.setPrefHeight(CARD_HEIGHT);
+            root.setMinHeight(CARD_HEIGHT);
+            root.setMaxHeight(CARD_HEIGHT);
+
+            // === COVER IMAGE ===
+            coverView.setFitWidth(COVER_WIDTH);
+            coverView.setFitHeight(COVER_HEIGHT);
+            coverView.setPreserveRatio(false);
+            coverView.setSmooth(true);
+
+            // === TITLE ===
+            titleLabel.setWrapText(true);
+            titleLabel.setMaxWidth(ELEMENT_WIDTH);
+            titleLabel.setMinHeight(40);
+            titleLabel.setMaxHeight(40);
+            titleLabel.getStyleClass().add("book-title");
+            titleLabel.setAlignment(Pos.CENTER);
+
+            // === AUTHOR ===
+            authorLabel.setWrapText(true);
+            authorLabel.setMaxWidth(ELEMENT_WIDTH);
+            authorLabel.setMinHeight(30);
+            authorLabel.setMaxHeight(30);
+            authorLabel.getStyleClass().add("book-author");
+            authorLabel.setAlignment(Pos.CENTER);
+
+            // === SPACER ===
+            Region spacer = new Region();
+            VBox.setVgrow(spacer, Priority.ALWAYS);
+
+            // === PROGRESS BAR ===
+            progressBox.setAlignment(Pos.CENTER);
+            progressBox.setMinHeight(40);
+            progressBox.setMaxHeight(40);
+            progressBox.setPrefWidth(ELEMENT_WIDTH);
+            progressBar.setPrefWidth(ELEMENT_WIDTH - 10);
+            progressBar.setStyle("-fx-accent: #4a90e2;");
+
+            // === ACTION BUTTONS ===
+            VBox buttonBox = new VBox(8);
+            buttonBox.setAlignment(Pos.CENTER);
+            buttonBox.setPrefWidth(ELEMENT_WIDTH);
+            buttonBox.setMinHeight(115);
+            buttonBox.setMaxHeight(115);
+
+            Button openBtn = createCardButton("Open");
+            openBtn.setOnAction(e -> openBook(book));
+
+            configureCardButton(favBtn);
+            favBtn.setOnAction(e -> toggleFavorite(book, favBtn));
+
+            Button deleteBtn = createCardButton("Delete");
+            deleteBtn.setOnAction(e -> deleteBook(book));
+
+            buttonBox.getChildren().addAll(openBtn, favBtn, deleteBtn);
+
+            // Single-click to open book
+            root.setOnMouseClicked(event -> {
+                if (event.getClickCount() == 1 && event.getTarget() == root) {
+                    openBook(book);
+                }
+            });
 
-        try {
-            double progress = bookDAO.getProgressPercentage(book.getId());
-            if (progress > 0) {
-                ProgressBar progressBar = new ProgressBar(progress / 100.0);
-                progressBar.setPrefWidth(ELEMENT_WIDTH - 10);
-                progressBar.setStyle("-fx-accent: #4a90e2;");
+            // Add all elements - PERFECT ORDER
+            root.getChildren().addAll(
+                    coverView,      // 215px
+                    titleLabel,     // 40px
+                    authorLabel,    // 30px
+                    spacer,         // flexible
+                    progressBox,    // 40px
+                    buttonBox       // 115px
+            );
+            // Total fixed: 215 + 40 + 30 + 40 + 115 = 440px + spacing + padding = ~500px
+        }
 
-                Label progressLabel = new Label(String.format("%.0f%%", progress));
-                progressLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #666;");
+        void setBook(Book book) {
+            this.book = book;
 
-                progressBox.getChildren().addAll(progressBar, progressLabel);
+            titleLabel.setText(book.getTitle());
+            authorLabel.setText(book.getAuthor());
+            favBtn.setText(book.isFavorite() ? "★ Favorite" : "☆ Favorite");
+
+            coverView.setOpacity(book.isMissing() ? 0.5 : 1.0);
+            showCover(book.getCoverPath());
+
+            double progress = progressByBook.getOrDefault(book.getId(), 0.0);
+            if (book.isMissing()) {
+                Label missingLabel = new Label("⚠ File missing");
+                missingLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #c0392b;");
+                progressBox.getChildren().setAll(missingLabel);
+            } else if (progress > 0) {
+                progressBar.setProgress(progress / 100.0);
+                progressLabel.setText(String.format("%.0f%%", progress));
+                progressLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #666;");
+                progressBox.getChildren().setAll(progressBar, progressLabel);
             } else {
-                Label emptyProgress = new Label("Not started");
-                emptyProgress.setStyle("-fx-font-size: 11px; -fx-text-fill: #999;");
-                progressBox.getChildren().add(emptyProgress);
+                progressLabel.setText("Not started");
+                progressLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #999;");
+                progressBox.getChildren().setAll(progressLabel);
             }
-        } catch (SQLException e) {
-            System.err.println("✗ Error loading progress for book " + book.getId());
-        }
-
-        // === ACTION BUTTONS ===
-        VBox buttonBox = new VBox(8);
-        buttonBox.setAlignment(Pos.CENTER);
-        buttonBox.setPrefWidth(ELEMENT_WIDTH);
-        buttonBox.setMinHeight(115);
-        buttonBox.setMaxHeight(115);
-
-        Button openBtn = new Button("Open");
-        openBtn.setPrefWidth(ELEMENT_WIDTH);
-        openBtn.setMinWidth(ELEMENT_WIDTH);
-        openBtn.setMaxWidth(ELEMENT_WIDTH);
-        openBtn.setPrefHeight(32);
-        openBtn.setMinHeight(32);
-        openBtn.setMaxHeight(32);
-        openBtn.setOnAction(e -> openBook(book));
-
-        Button favBtn = new Button(book.isFavorite() ? "★ Favorite" : "☆ Favorite");
-        favBtn.setPrefWidth(ELEMENT_WIDTH);
-        favBtn.setMinWidth(ELEMENT_WIDTH);
-        favBtn.setMaxWidth(ELEMENT_WIDTH);
-        favBtn.setPrefHeight(32);
-        favBtn.setMinHeight(32);
-        favBtn.setMaxHeight(32);
-        favBtn.setOnAction(e -> toggleFavorite(book, favBtn));
-
-        Button deleteBtn = new Button("Delete");
-        deleteBtn.setPrefWidth(ELEMENT_WIDTH);
-        deleteBtn.setMinWidth(ELEMENT_WIDTH);
-        deleteBtn.setMaxWidth(ELEMENT_WIDTH);
-        deleteBtn.setPrefHeight(32);
-        deleteBtn.setMinHeight(32);
-        deleteBtn.setMaxHeight(32);
-        deleteBtn.setOnAction(e -> deleteBook(book));
-
-        buttonBox.getChildren().addAll(openBtn, favBtn, deleteBtn);
-
-        // Single-click to open book
-        card.setOnMouseClicked(event -> {
-            if (event.getClickCount() == 1 && event.getTarget() == card) {
-                openBook(book);
+        }
+
+        /**
+         * Show a cached cover right away, otherwise the placeholder until the
+         * downsampled cover has been decoded in the background
+         */
+        private void showCover(String coverPath) {
+            if (pendingCover != null && pendingCover.getProgress() < 1.0) {
+                pendingCover.cancel();
             }
-        });
+            pendingCover = null;
 
-        // Add all elements - PERFECT ORDER
-        card.getChildren().addAll(
-                coverView,      // 215px
-                titleLabel,     // 40px
-                authorLabel,    // 30px
-                spacer,         // flexible
-                progressBox,    // 40px
-                buttonBox       // 115px
-        );
-        // Total fixed: 215 + 40 + 30 + 40 + 115 = 440px + spacing + padding = ~500px
+            if (coverPath == null) {
+                setDefaultCover(coverView);
+                return;
+            }
+
+            double scale = Screen.getPrimary().getOutputScaleX();
+            double width = COVER_WIDTH * scale;
+            double height = COVER_HEIGHT * scale;
+            CoverImageCache covers = CoverImageCache.getInstance();
 
-        return card;
+            Image cached = covers.getCached(coverPath, width, height);
+            if (cached != null) {
+                coverView.setImage(cached);
+                return;
+            }
+
+            // Prefer the pre-scaled thumbnail, full-size covers are only read
+            // for books imported before thumbnails existed
+            String source = CoverThumbnails.resolve(coverPath, scale);
+            setDefaultCover(coverView);
+            pendingCover = covers.load(coverPath, source, width, height, image -> {
+                // The card may have been rebound to another book meanwhile
+                if (book != null && coverPath.equals(book.getCoverPath())) {
+                    if (image != null) {
+                        coverView.setImage(image);
+                    } else {
+                        setDefaultCover(coverView);
+                    }
+                }
+            });
+        }
+
+        private Button createCardButton(String text) {
+            Button button = new Button(text);
+            configureCardButton(button);
+            return button;
+        }
+
+        private void configureCardButton(Button button) {
+            button.setPrefWidth(ELEMENT_WIDTH);
+            button.setMinWidth(ELEMENT_WIDTH);
+            button.setMaxWidth(ELEMENT_WIDTH);
+            button.setPrefHeight(32);
+            button.setMinHeight(32);
+            button.setMaxHeight(32);
+        }
     }
 
     private void setDefaultCover(ImageView coverView) {
         try {
-            Image defaultCover = new Image(getClass().getResourceAsStream("/images/default-cover.png"));
+            if (defaultCover == null) {
+                defaultCover = new Image(getClass().getResourceAsStream("/images/default-cover.png"),
+                        COVER_WIDTH, COVER_HEIGHT, false, true);
+            }
             coverView.setImage(defaultCover);
         } catch (Exception e) {
+            coverView.setImage(null);
             coverView.setStyle("-fx-background-color: #4a90e2;");
         }
     }
 
     private void openBook(Book book) {
+        openBook(book, -1);
+    }
+
+    /**
+     * Open a book in the reader, at the given chapter/page if startPage >= 0
+     */
+    private void openBook(Book book, int startPage) {
         try {
             System.out.println("→ Opening book: " + book.getTitle());
 
@@ -590,7 +942,11 @@ public class LibraryController {
                 return;
             }
 
-            readerController.loadBook(book);
+            if (startPage >= 0) {
+                readerController.loadBook(book, startPage);
+            } else {
+                readerController.loadBook(book);
+            }
 
             if (!Main.getPrimaryStage().getScene().getStylesheets().isEmpty()) {
                 String currentTheme = Main.getPrimaryStage().getScene().getStylesheets().get(0);
@@ -636,6 +992,10 @@ public class LibraryController {
             if (response == ButtonType.OK) {
                 try {
                     bookDAO.deleteBook(book.getId());
+                    if (book.getCoverPath() != null) {
+                        CoverImageCache.getInstance().invalidate(book.getCoverPath());
+                        CoverThumbnails.delete(book.getCoverPath());
+                    }
                     loadAllBooks();
                     System.out.println("✓ Book deleted: " + book.getTitle());
                 } catch (SQLException e) {
@@ -663,14 +1023,6 @@ public class LibraryController {
         loadAllBooks();
     }
 
-    private String getFileExtension(String filePath) {
-        int lastDot = filePath.lastIndexOf('.');
-        if (lastDot > 0) {
-            return filePath.substring(lastDot + 1);
-        }
-        return "";
-    }
-
     private void showError(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle(title);
@@ -0,0 +1,309 @@
+package com.ebook.reader.controller;
+
+import com.ebook.reader.service.PdfTileRenderer;
+import com.ebook.reader.service.PdfTileRenderer.TileKey;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Region;
+import javafx.stage.Screen;
+import javafx.stage.Window;
+
+import java.util.*;
+
+/**
+ * One PDF page at a given display width.
+ *
+ * The page is shown from a whole-page base image. When the page is zoomed
+ * beyond the base image's resolution, the visible part is covered with
+ * tiles rendered at the current zoom; until they arrive the scaled base
+ * image, and tiles of the previous zoom level, stay visible underneath.
+ * Tiles that scroll out of view are dropped, so the memory a page holds
+ * depends on the viewport size, not on the page size or zoom.
+ */
+public class PdfPageView extends Region {
+
+    private final ImageView baseView = new ImageView();
+    private final Map<TileKey, ImageView> tileViews = new LinkedHashMap<>();
+
+    private PdfTileRenderer renderer;
+    private Node viewport;
+    private int pageIndex = -1;
+    private double pageWidth = 0;
+    private double pageHeight = 0;
+    private double displayWidth = 0;
+    private boolean refreshScheduled = false;
+
+    // Tiles currently needed; read by render threads to skip stale requests
+    private volatile Set<TileKey> wantedTiles = Collections.emptySet();
+
+    public PdfPageView() {
+        baseView.setSmooth(true);
+        getChildren().add(baseView);
+
+        // Resizing and scrolling happen during layout; update tiles once it has finished
+        widthProperty().addListener((obs, oldVal, newVal) -> scheduleRefresh());
+        heightProperty().addListener((obs, oldVal, newVal) -> scheduleRefresh());
+        localToSceneTransformProperty().addListener((obs, oldVal, newVal) -> scheduleRefresh());
+    }
+
+    /**
+     * Show a page. pageSize is in points; if it is null the base image's
+     * pixel size is used and no tiles are rendered.
+     */
+    public void setPage(PdfTileRenderer renderer, int pageIndex, float[] pageSize, Image baseImage) {
+        if (this.pageIndex != pageIndex || this.renderer != renderer) {
+            clearTiles();
+        }
+        this.renderer = pageSize != null ? renderer : null;
+        this.pageIndex = pageIndex;
+        this.pageWidth = pageSize != null ? pageSize[0] : baseImage != null ? baseImage.getWidth() : 0;
+        this.pageHeight = pageSize != null ? pageSize[1] : baseImage != null ? baseImage.getHeight() : 0;
+        baseView.setImage(baseImage);
+        requestLayout();
+    }
+
+    /**
+     * Replace the base image in place, e.g. a draft with the full render of
+     * the same page. The layout doesn't change, as it follows the page size.
+     */
+    public void setBaseImage(Image baseImage) {
+        baseView.setImage(baseImage);
+        // Whether tiles are needed depends on the base image's resolution
+        scheduleRefresh();
+    }
+
+    public Image getBaseImage() {
+        return baseView.getImage();
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    /**
+     * Forget the page and drop its images
+     */
+    public void clear() {
+        clearTiles();
+        baseView.setImage(null);
+        renderer = null;
+        pageIndex = -1;
+    }
+
+    /**
+     * Width to lay the page out at; the height follows from the page's aspect ratio
+     */
+    public void setDisplayWidth(double width) {
+        if (width != displayWidth) {
+            displayWidth = width;
+            requestLayout();
+        }
+    }
+
+    /**
+     * Node whose bounds are the visible area, usually the enclosing scroll pane
+     */
+    public void setViewport(Node viewport) {
+        this.viewport = viewport;
+    }
+
+    private double displayHeight() {
+        return pageWidth > 0 ? displayWidth * pageHeight / pageWidth : 0;
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return displayWidth;
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return displayHeight();
+    }
+
+    // Never shrink below the page, so an enclosing scroll pane scrolls instead
+    @Override
+    protected double computeMinWidth(double height) {
+        return displayWidth;
+    }
+
+    @Override
+    protected double computeMinHeight(double width) {
+        return displayHeight();
+    }
+
+    @Override
+    protected double computeMaxWidth(double height) {
+        return displayWidth;
+    }
+
+    @Override
+    protected double computeMaxHeight(double width) {
+        return displayHeight();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = getWidth();
+        double height = getHeight();
+
+        baseView.relocate(0, 0);
+        baseView.setFitWidth(width);
+        baseView.setFitHeight(height);
+
+        if (pageWidth <= 0) return;
+        for (Map.Entry<TileKey, ImageView> entry : tileViews.entrySet()) {
+            layoutTile(entry.getKey(), entry.getValue(), width);
+        }
+    }
+
+    /**
+     * Place a tile using rounded edges on both sides, so neighbouring tiles
+     * meet without gaps
+     */
+    private void layoutTile(TileKey key, ImageView view, double width) {
+        double factor = width / (pageWidth * key.getScale());
+        Image image = view.getImage();
+        double x0 = Math.floor(key.column * PdfTileRenderer.TILE_SIZE * factor);
+        double y0 = Math.floor(key.row * PdfTileRenderer.TILE_SIZE * factor);
+        double x1 = Math.floor((key.column * PdfTileRenderer.TILE_SIZE + image.getWidth()) * factor);
+        double y1 = Math.floor((key.row * PdfTileRenderer.TILE_SIZE + image.getHeight()) * factor);
+
+        view.relocate(x0, y0);
+        view.setFitWidth(x1 - x0);
+        view.setFitHeight(y1 - y0);
+    }
+
+    /**
+     * Refresh the tiles after the current layout pass; repeated calls are coalesced
+     */
+    public void scheduleRefresh() {
+        if (refreshScheduled) return;
+        refreshScheduled = true;
+        Platform.runLater(() -> {
+            refreshScheduled = false;
+            refreshTiles();
+        });
+    }
+
+    /**
+     * Bring the tiles in line with the visible part of the page and the
+     * current zoom: request missing ones and drop those no longer needed
+     */
+    public void refreshTiles() {
+        Image base = baseView.getImage();
+        double width = getWidth();
+        if (renderer == null || base == null || viewport == null || width <= 0 || pageWidth <= 0) {
+            clearTiles();
+            return;
+        }
+
+        Bounds visible = sceneToLocal(viewport.localToScene(viewport.getLayoutBounds()));
+        double deviceScale = width / pageWidth * outputScale();
+        double baseScale = base.getWidth() / pageWidth;
+
+        if (visible == null || deviceScale <= baseScale * 1.05) {
+            // The base image is sharp enough at this zoom
+            clearTiles();
+            return;
+        }
+
+        int level = PdfTileRenderer.levelFor(deviceScale);
+        float scale = PdfTileRenderer.levelScale(level);
+        double tilePixelsPerUnit = scale * pageWidth / width;
+        int columns = (int) Math.ceil(Math.ceil(pageWidth * scale) / PdfTileRenderer.TILE_SIZE);
+        int rows = (int) Math.ceil(Math.ceil(pageHeight * scale) / PdfTileRenderer.TILE_SIZE);
+
+        int firstColumn = clamp((int) (Math.max(0, visible.getMinX()) * tilePixelsPerUnit / PdfTileRenderer.TILE_SIZE), columns);
+        int lastColumn = clamp((int) (Math.min(width, visible.getMaxX()) * tilePixelsPerUnit / PdfTileRenderer.TILE_SIZE), columns);
+        int firstRow = clamp((int) (Math.max(0, visible.getMinY()) * tilePixelsPerUnit / PdfTileRenderer.TILE_SIZE), rows);
+        int lastRow = clamp((int) (Math.min(getHeight(), visible.getMaxY()) * tilePixelsPerUnit / PdfTileRenderer.TILE_SIZE), rows);
+
+        Set<TileKey> wanted = new HashSet<>();
+        if (visible.getMaxX() > 0 && visible.getMinX() < width
+                && visible.getMaxY() > 0 && visible.getMinY() < getHeight()) {
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    wanted.add(new TileKey(pageIndex, level, column, row));
+                }
+            }
+        }
+        wantedTiles = Collections.unmodifiableSet(wanted);
+
+        boolean complete = true;
+        for (TileKey key : wanted) {
+            if (tileViews.containsKey(key)) continue;
+
+            Image cached = renderer.getCachedTile(key);
+            if (cached != null) {
+                addTile(key, cached);
+            } else {
+                complete = false;
+                PdfTileRenderer requestedFrom = renderer;
+                renderer.requestTile(key, () -> wantedTiles.contains(key), image -> {
+                    if (renderer == requestedFrom && wantedTiles.contains(key) && !tileViews.containsKey(key)) {
+                        addTile(key, image);
+                        dropStaleTiles(level, true);
+                    }
+                });
+            }
+        }
+
+        dropStaleTiles(level, complete);
+    }
+
+    /**
+     * Remove tiles that are out of view; tiles of other zoom levels are kept
+     * as a placeholder until the current level covers the view
+     */
+    private void dropStaleTiles(int level, boolean levelComplete) {
+        Set<TileKey> wanted = wantedTiles;
+        if (levelComplete) {
+            for (TileKey key : wanted) {
+                if (!tileViews.containsKey(key)) {
+                    levelComplete = false;
+                    break;
+                }
+            }
+        }
+
+        Iterator<Map.Entry<TileKey, ImageView>> it = tileViews.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<TileKey, ImageView> entry = it.next();
+            TileKey key = entry.getKey();
+            boolean keep = key.level == level ? wanted.contains(key) : !levelComplete;
+            if (!keep) {
+                getChildren().remove(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    private void addTile(TileKey key, Image image) {
+        ImageView view = new ImageView(image);
+        view.setSmooth(true);
+        tileViews.put(key, view);
+        getChildren().add(view);
+        layoutTile(key, view, getWidth());
+    }
+
+    private void clearTiles() {
+        wantedTiles = Collections.emptySet();
+        if (!tileViews.isEmpty()) {
+            getChildren().removeAll(tileViews.values());
+            tileViews.clear();
+        }
+    }
+
+    private double outputScale() {
+        Window window = getScene() != null ? getScene().getWindow() : null;
+        return window != null ? window.getOutputScaleX() : Screen.getPrimary().getOutputScaleX();
+    }
+
+    private static int clamp(int index, int count) {
+        return Math.max(0, Math.min(count - 1, index));
+    }
+}
@@ -3,14 +3,24 @@ package com.ebook.reader.controller;
 import com.ebook.reader.Main;
 import com.ebook.reader.dao.BookDAO;
 import com.ebook.reader.model.Book;
+import com.ebook.reader.service.EpubChapterSource;
 import com.ebook.reader.service.EpubService;
+import com.ebook.reader.service.EpubTextIndex;
+import com.ebook.reader.service.PdfDocumentPool;
+import com.ebook.reader.service.PdfPageDiskCache;
+import com.ebook.reader.service.PdfRenderEngine;
+import com.ebook.reader.service.PdfRenderScheduler;
 import com.ebook.reader.service.PdfService;
+import com.ebook.reader.service.PdfTextIndex;
+import com.ebook.reader.service.PdfTileRenderer;
+import com.ebook.reader.util.PdfPageCache;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
-import javafx.scene.image.ImageView;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.scene.input.KeyCode;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.*;
 import javafx.scene.web.WebView;
 import javafx.concurrent.Worker;
@@ -20,25 +30,16 @@ import java.io.IOException;  // <– BỔ SUNG
 import java.sql.SQLException;
 import java.util.*;
 
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
-import javafx.concurrent.Task;
-import javafx.embed.swing.SwingFXUtils;
-import java.awt.image.BufferedImage;
-
-// Dùng Loader để mở file PDF
-import org.apache.pdfbox.Loader;
-
-// Dùng Image cho kiểu trả về của Task
-import javafx.scene.image.Image;
-
 // Dùng TimeUnit trong schedule (nếu có)
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import javax.imageio.ImageIO;
 
 import javafx.scene.image.Image;
-import java.util.LinkedHashMap;
 import java.util.Map;
 
 
@@ -49,7 +50,11 @@ public class ReaderController {
     @FXML private StackPane readerPane;
     @FXML private WebView epubWebView;
     @FXML private ScrollPane pdfScrollPane;
-    @FXML private ImageView pdfImageView;
+    @FXML private PdfPageView pdfPageView;
+    @FXML private HBox zoomControls;
+    @FXML private Label zoomLabel;
+    @FXML private ListView<Integer> pdfPageList;
+    @FXML private ToggleButton continuousToggle;
     @FXML private Label pageLabel;
     @FXML private Slider pageSlider;
     @FXML private Button prevButton;
@@ -63,11 +68,12 @@ public class ReaderController {
     @FXML private Button backButton; // NEW: Back button for footnotes
     @FXML private SplitPane mainSplitPane; // NEW: Reference to SplitPane
     @FXML private ComboBox<String> fontFamilyCombo; // NEW: Font family selector
+    @FXML private TextField searchField;
+    @FXML private Label searchStatusLabel;
+    @FXML private ListView<SearchResult> searchResultsView;
 
     private String currentFontFamily = "Georgia"; // NEW: Current font
     private boolean isTocVisible = true; // NEW: Track TOC visibility
-    // Add this to the beginning of ReaderController class:
-    private EpubService currentEpubService; // Track the service for cleanup
 
     private Book currentBook;
     private BookDAO bookDAO;
@@ -76,10 +82,18 @@ public class ReaderController {
 
     private int currentPage = 0;
     private int totalPages = 0;
-    private List<String> epubChapters;
+    private int startPageOverride = -1;
+    private EpubChapterSource epubChapters;
     private List<TocItem> tocItems;
     private Map<String, Integer> chapterLinkMap;
 
+    // Bumped for every new search so a running one knows it is stale
+    private final java.util.concurrent.atomic.AtomicInteger searchGeneration =
+            new java.util.concurrent.atomic.AtomicInteger();
+    private static final int MAX_SEARCH_RESULTS = 2000;
+    // Query of the results currently listed, for highlighting an opened EPUB hit
+    private String activeSearchQuery;
+
     private String currentTheme = "light";
     private int currentFontSize = 16;
 
@@ -98,22 +112,38 @@ public class ReaderController {
     // DAO for loading default settings
     private com.ebook.reader.dao.UserSettingsDAO settingsDAO;
 
-    // Thêm hai biến này để lưu tài liệu và bộ render PDF hiện tại
-    private org.apache.pdfbox.pdmodel.PDDocument currentPdfDocument;
-    private org.apache.pdfbox.rendering.PDFRenderer currentPdfRenderer;
-
-    // Số lượng trang PDF giữ lại trong bộ nhớ (có thể chỉnh lên/xuống tùy máy)
-    private static final int PDF_PAGE_CACHE_SIZE = 5;
-
-    // Lưu cache trang PDF theo thứ tự truy cập (accessOrder = true)
-    private final LinkedHashMap<Integer, Image> pdfPageCache =
-            new LinkedHashMap<Integer, Image>(PDF_PAGE_CACHE_SIZE, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
-                    // Tự động xóa trang lâu nhất khi vượt quá giới hạn
-                    return size() > PDF_PAGE_CACHE_SIZE;
-                }
-            };
+    // Hold on the open PDF in the shared document pool while it is being read
+    private volatile PdfDocumentPool.Session pdfSession;
+    private volatile PdfTileRenderer pdfTiles;
+    private volatile PdfRenderScheduler pdfRenders;
+    // One render worker per spare core; each also preloads one more page ahead
+    private static final int PDF_RENDER_WORKERS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    // PDF zoom relative to fitting the page to the view's width
+    private static final float PDF_RENDER_DPI = 96f * 2.0f;
+    private static final float PDF_DRAFT_DPI = 48f;
+    private static final double MIN_PDF_ZOOM = 0.5;
+    private static final double MAX_PDF_ZOOM = 16.0;
+    private static final double PDF_ZOOM_STEP = 1.25;
+    private double pdfZoom = 1.0;
+
+    // Continuous mode: every page is a list row, only rows near the viewport are rendered
+    private static final int CONTINUOUS_PREFETCH_PAGES = 2;
+    private static final double CONTINUOUS_PAGE_GAP = 10;
+    private boolean pdfContinuous = false;
+    private final List<PdfPageCell> pdfPageCells = new ArrayList<>();
+    private final Set<Integer> pendingContinuousRenders = new HashSet<>();
+    private VirtualFlow<?> pdfPageFlow;
+    private double lastFlowPosition = 0;
+    private volatile int continuousFirstWanted = -1;
+    private volatile int continuousLastWanted = -1;
+    private final Set<Integer> shownContinuousPages = java.util.concurrent.ConcurrentHashMap.newKeySet();
+    private PdfTileRenderer pageSizesLoadedFor;
+    private boolean uniformPageSizes = false;
+
+    // Rendered PDF pages, bounded by memory rather than page count
+    private final PdfPageCache pdfPageCache = new PdfPageCache(PdfPageCache.defaultBudget());
 
     // NEW: Page state class
     private static class PageState {
@@ -162,6 +192,15 @@ public class ReaderController {
             pageSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
                 if (!pageSlider.isValueChanging()) {
                     goToPage(newVal.intValue());
+                } else if (isPdfOpen()) {
+                    scrubPdfPage(newVal.intValue());
+                }
+            });
+            // Releasing the thumb doesn't always change the value; open the page shown while dragging
+            pageSlider.valueChangingProperty().addListener((obs, wasChanging, changing) -> {
+                int page = (int) pageSlider.getValue();
+                if (!changing && isPdfOpen() && (page != currentPage || pdfPageView.getPageIndex() != page)) {
+                    goToPage(page);
                 }
             });
         }
@@ -190,6 +229,9 @@ public class ReaderController {
             });
         }
 
+        setupSearch();
+        setupPdfView();
+
         // Hide settings panel by default
         if (settingsPanel != null) {
             settingsPanel.setVisible(false);
@@ -289,6 +331,16 @@ public class ReaderController {
                     handleNextPage();
                 } else if (event.isControlDown() && event.getCode() == KeyCode.B) {
                     handleAddBookmark();
+                } else if (event.isControlDown() && event.getCode() == KeyCode.F) {
+                    showSearch();
+                } else if (event.isControlDown() && (event.getCode() == KeyCode.PLUS
+                        || event.getCode() == KeyCode.EQUALS || event.getCode() == KeyCode.ADD)) {
+                    handleZoomIn();
+                } else if (event.isControlDown() && (event.getCode() == KeyCode.MINUS
+                        || event.getCode() == KeyCode.SUBTRACT)) {
+                    handleZoomOut();
+                } else if (event.isControlDown() && event.getCode() == KeyCode.DIGIT0) {
+                    handleZoomReset();
                 } else if (event.getCode() == KeyCode.F11) {
                     handleFullScreen();
                 } else if (event.getCode() == KeyCode.ESCAPE && savedPageBeforeLink != null) {
@@ -300,16 +352,26 @@ public class ReaderController {
         }
     }
 
+    /**
+     * Open a book at a chapter (EPUB) or page (PDF) instead of the saved
+     * reading position, e.g. from a library text search hit
+     */
+    public void loadBook(Book book, int startPage) {
+        this.startPageOverride = startPage;
+        loadBook(book);
+    }
+
     public void loadBook(Book book) {
         if (book == null) {
             showError("Invalid Book", "Book object is null");
             return;
         }
 
-        // Cleanup previous book's temp files if any
-        if (currentEpubService != null) {
-            currentEpubService.cleanupTempDir();
-        }
+        // Release the previous book's archive or PDF if any
+        closeEpubChapters();
+        closePdfSession();
+        clearPdfPageViews();
+        clearSearch();
 
         this.currentBook = book;
         savedPageBeforeLink = null;
@@ -354,20 +416,19 @@ public class ReaderController {
         new Thread(() -> {
             try {
                 System.out.println("→ Loading EPUB chapters...");
-                // Track this service for cleanup
-                currentEpubService = epubService;
 
-                List<String> chapters = epubService.getChapterContents(filePath);
-                if (chapters == null || chapters.isEmpty()) {
+                EpubChapterSource chapters = epubService.openChapterSource(filePath);
+                if (chapters.getChapterCount() == 0) {
+                    chapters.close();
                     Platform.runLater(() -> showError("Empty Book", "No content found in EPUB file"));
                     return;
                 }
 
                 this.epubChapters = chapters;
-                this.totalPages = chapters.size();
-                this.chapterLinkMap = epubService.buildChapterFileMap(filePath, chapters);
+                this.totalPages = chapters.getChapterCount();
+                this.chapterLinkMap = epubService.buildChapterFileMap(filePath);
 
-                List<TocItem> toc = epubService.getTableOfContentsWithMapping(filePath, chapters);
+                List<TocItem> toc = epubService.getTableOfContentsWithMapping(filePath, totalPages);
                 this.tocItems = toc;
 
                 Platform.runLater(() -> {
@@ -376,6 +437,11 @@ public class ReaderController {
                             pdfScrollPane.setVisible(false);
                             pdfScrollPane.setManaged(false);
                         }
+                        if (pdfPageList != null) {
+                            pdfPageList.setVisible(false);
+                            pdfPageList.setManaged(false);
+                        }
+                        setZoomControlsVisible(false);
                         if (epubWebView != null) {
                             epubWebView.setVisible(true);
                             epubWebView.setManaged(true);
@@ -410,6 +476,7 @@ public class ReaderController {
                             currentPage = 0;
                             lastSavedScrollPosition = 0.0;
                         }
+                        applyStartPageOverride();
 
                         displayEpubPage(currentPage);
 
@@ -451,7 +518,7 @@ public class ReaderController {
     // REPLACE displayEpubPage() method with this UPDATED version:
 
     private void displayEpubPage(int pageIndex, boolean isBackNavigation, boolean saveHistory) {
-        if (epubChapters == null || pageIndex < 0 || pageIndex >= epubChapters.size()) {
+        if (epubChapters == null || pageIndex < 0 || pageIndex >= epubChapters.getChapterCount()) {
             System.err.println("✗ Invalid page index: " + pageIndex);
             return;
         }
@@ -479,7 +546,8 @@ public class ReaderController {
 
             currentPage = pageIndex;
 
-            String htmlContent = epubChapters.get(pageIndex);
+            String htmlContent = epubChapters.getChapter(pageIndex);
+            epubChapters.prefetchAround(pageIndex);
             String basePath = new File(currentBook.getFilePath()).getParent();
 
             // UPDATED: Pass font family to convertToStyledHtml
@@ -705,14 +773,14 @@ public class ReaderController {
             try {
                 Thread.sleep(delay);   // ✅ giờ dùng được trong lambda
                 Platform.runLater(() -> {
-                    if (pdfScrollPane == null || pdfImageView == null || pdfImageView.getImage() == null) {
+                    if (pdfScrollPane == null || pdfPageView == null || pdfPageView.getBaseImage() == null) {
                         System.out.println("→ PDF not ready (attempt " + (currentAttempt + 1) + "), retrying...");
                         schedulePdfScrollRestore(scrollPercentage, currentAttempt + 1);
                         return;
                     }
 
                     double viewportHeight = pdfScrollPane.getViewportBounds().getHeight();
-                    double contentHeight = pdfImageView.getBoundsInParent().getHeight();
+                    double contentHeight = pdfPageView.getBoundsInParent().getHeight();
 
                     if (viewportHeight > 0 && contentHeight > viewportHeight) {
                         pdfScrollPane.setVvalue(scrollPercentage);
@@ -802,6 +870,500 @@ public class ReaderController {
         hideBackButton();
     }
 
+    /**
+     * Start at the page passed to loadBook(book, startPage) instead of the
+     * restored reading position
+     */
+    private void applyStartPageOverride() {
+        if (startPageOverride >= 0 && startPageOverride < totalPages) {
+            currentPage = startPageOverride;
+            lastSavedScrollPosition = 0.0;
+            System.out.println("→ Opening at page " + (currentPage + 1));
+        }
+        startPageOverride = -1;
+    }
+
+    /**
+     * Render a page of the open PDF at reading resolution
+     */
+    private Image renderPdfPage(int pageIndex) throws IOException {
+        PdfTileRenderer tiles = pdfTiles;
+        if (tiles == null) {
+            return null;
+        }
+
+        return tiles.renderPage(pageIndex, PDF_RENDER_DPI);
+    }
+
+    /**
+     * Render a quick low-resolution draft of a page of the open PDF
+     */
+    private Image renderPdfDraft(int pageIndex) throws IOException {
+        PdfTileRenderer tiles = pdfTiles;
+        return tiles != null ? tiles.renderDraft(pageIndex, PDF_DRAFT_DPI) : null;
+    }
+
+    /**
+     * Release the hold on the open PDF; the pool closes it once it is idle
+     */
+    private void closePdfSession() {
+        PdfRenderScheduler renders = pdfRenders;
+        pdfRenders = null;
+        if (renders != null) {
+            renders.close();
+        }
+
+        PdfTileRenderer tiles = pdfTiles;
+        pdfTiles = null;
+        if (tiles != null) {
+            tiles.close();
+        }
+
+        PdfDocumentPool.Session session = pdfSession;
+        pdfSession = null;
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    /**
+     * Show a rendered page in the PDF view at the current zoom
+     */
+    private void showPdfPageImage(int pageIndex, Image image) {
+        PdfTileRenderer tiles = pdfTiles;
+        float[] pageSize = tiles != null ? tiles.getKnownPageSize(pageIndex) : null;
+        pdfPageView.setPage(tiles, pageIndex, pageSize, image);
+        updatePdfLayout();
+    }
+
+    /**
+     * Whether the single-page view or a continuous row currently shows the image
+     */
+    private boolean isPdfImageShown(Image image) {
+        if (pdfPageView != null && pdfPageView.getBaseImage() == image) {
+            return true;
+        }
+        for (PdfPageCell cell : pdfPageCells) {
+            if (cell.pageView.getBaseImage() == image) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wire up zooming and tile updates of the PDF view
+     */
+    private void setupPdfView() {
+        if (pdfScrollPane == null || pdfPageView == null) return;
+
+        // Reuse the pixels of pages dropped from the cache once they are off screen.
+        // Pages are only put in the cache on the FX thread, so this runs there too.
+        pdfPageCache.setEvictionListener(image -> {
+            PdfTileRenderer tiles = pdfTiles;
+            if (tiles != null && !isPdfImageShown(image)) {
+                tiles.recycle(image);
+            }
+        });
+
+        pdfPageView.setViewport(pdfScrollPane);
+        pdfScrollPane.widthProperty().addListener((obs, oldVal, newVal) -> updatePdfLayout());
+        pdfScrollPane.viewportBoundsProperty().addListener((obs, oldVal, newVal) -> pdfPageView.scheduleRefresh());
+
+        // Ctrl + mouse wheel zooms instead of scrolling
+        javafx.event.EventHandler<ScrollEvent> wheelZoom = event -> {
+            if (event.isControlDown() && event.getDeltaY() != 0) {
+                setPdfZoom(event.getDeltaY() > 0 ? pdfZoom * PDF_ZOOM_STEP : pdfZoom / PDF_ZOOM_STEP);
+                event.consume();
+            }
+        };
+        pdfScrollPane.addEventFilter(ScrollEvent.SCROLL, wheelZoom);
+
+        if (pdfPageList != null) {
+            pdfPageList.addEventFilter(ScrollEvent.SCROLL, wheelZoom);
+            pdfPageList.setCellFactory(lv -> new PdfPageCell());
+            pdfPageList.setFocusTraversable(false);
+            pdfPageList.widthProperty().addListener((obs, oldVal, newVal) -> updatePdfLayout());
+            pdfPageList.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+                pdfPageFlow = (VirtualFlow<?>) pdfPageList.lookup(".virtual-flow");
+                if (pdfPageFlow != null) {
+                    pdfPageFlow.positionProperty().addListener((o, oldVal, newVal) -> onContinuousScroll());
+                    if (pdfContinuous) {
+                        pdfPageList.scrollTo(currentPage);
+                    }
+                }
+            });
+        }
+    }
+
+    @FXML
+    private void handleZoomIn() {
+        setPdfZoom(pdfZoom * PDF_ZOOM_STEP);
+    }
+
+    @FXML
+    private void handleZoomOut() {
+        setPdfZoom(pdfZoom / PDF_ZOOM_STEP);
+    }
+
+    @FXML
+    private void handleZoomReset() {
+        setPdfZoom(1.0);
+    }
+
+    private void setPdfZoom(double zoom) {
+        zoom = Math.max(MIN_PDF_ZOOM, Math.min(MAX_PDF_ZOOM, zoom));
+        if (Math.abs(zoom - 1.0) < 0.01) {
+            zoom = 1.0;
+        }
+        if (zoom == pdfZoom) return;
+
+        pdfZoom = zoom;
+        updatePdfLayout();
+    }
+
+    /**
+     * Size the page for the view width and zoom, then update its tiles once
+     * the scroll pane has laid it out
+     */
+    private void updatePdfLayout() {
+        if (pdfScrollPane == null || pdfPageView == null) return;
+
+        if (zoomLabel != null) {
+            zoomLabel.setText(Math.round(pdfZoom * 100) + "%");
+        }
+
+        if (pdfContinuous && pdfPageList != null) {
+            double width = continuousPageWidth();
+            for (PdfPageCell cell : pdfPageCells) {
+                cell.pageView.setDisplayWidth(width);
+            }
+            // Uniform pages let the list skip measuring rows while scrolling
+            pdfPageList.setFixedCellSize(uniformPageSizes
+                    ? continuousRowHeight(0) : Region.USE_COMPUTED_SIZE);
+            return;
+        }
+
+        double fitWidth = Math.max(100, pdfScrollPane.getWidth() - 20);
+        pdfPageView.setDisplayWidth(fitWidth * pdfZoom);
+        pdfPageView.scheduleRefresh();
+    }
+
+    private void setZoomControlsVisible(boolean visible) {
+        if (zoomControls != null) {
+            zoomControls.setVisible(visible);
+            zoomControls.setManaged(visible);
+        }
+    }
+
+    @FXML
+    private void handleToggleContinuous() {
+        setPdfContinuous(continuousToggle != null && continuousToggle.isSelected());
+    }
+
+    /**
+     * Switch between one page at a time and a continuous scroll of all pages
+     */
+    private void setPdfContinuous(boolean continuous) {
+        if (pdfPageList == null || continuous == pdfContinuous) return;
+        pdfContinuous = continuous;
+
+        pdfScrollPane.setVisible(!continuous);
+        pdfScrollPane.setManaged(!continuous);
+        pdfPageList.setVisible(continuous);
+        pdfPageList.setManaged(continuous);
+
+        if (continuous) {
+            pdfPageView.clear();
+        } else {
+            pdfPageList.getItems().clear();
+        }
+        if (currentBook != null && totalPages > 0) {
+            displayPdfPage(currentPage);
+        }
+    }
+
+    /**
+     * Scroll the continuous view to a page, fraction of the way down it
+     */
+    private void showContinuousPage(int pageIndex, double fraction) {
+        if (pdfPageList.getItems().size() != totalPages) {
+            List<Integer> pages = new ArrayList<>(totalPages);
+            for (int i = 0; i < totalPages; i++) {
+                pages.add(i);
+            }
+            pdfPageList.getItems().setAll(pages);
+            loadPdfPageSizes();
+            updatePdfLayout();
+        }
+
+        // The slider follows scrolling; don't jump back to the top of the page it was set to
+        if (pageIndex != continuousTopPage() || fraction > 0) {
+            pdfPageList.scrollTo(pageIndex);
+            if (fraction > 0) {
+                Platform.runLater(() -> {
+                    if (pdfPageFlow != null) {
+                        pdfPageFlow.scrollPixels(fraction * continuousRowHeight(pageIndex));
+                    }
+                });
+            }
+        }
+
+        currentPage = pageIndex;
+        lastSavedScrollPosition = 0.0;
+        updatePageInfo();
+        saveReadingProgress();
+    }
+
+    /**
+     * Page at the top third of the continuous view, or -1 if none is laid out
+     */
+    private int continuousTopPage() {
+        if (pdfPageFlow == null || pdfPageFlow.getFirstVisibleCell() == null) return -1;
+
+        double line = pdfPageFlow.getHeight() / 3;
+        for (PdfPageCell cell : pdfPageCells) {
+            if (cell.isVisible() && !cell.isEmpty() && cell.getItem() != null) {
+                double top = pdfPageFlow.sceneToLocal(cell.localToScene(0, 0)).getY();
+                if (top <= line && top + cell.getHeight() > line) {
+                    return cell.getItem();
+                }
+            }
+        }
+        return pdfPageFlow.getFirstVisibleCell().getIndex();
+    }
+
+    /**
+     * How far down its page the continuous view is scrolled, 0.0 to 1.0
+     */
+    private double continuousPageFraction() {
+        if (pdfPageFlow == null) return 0;
+        IndexedCell<?> first = pdfPageFlow.getFirstVisibleCell();
+        if (first == null || first.getIndex() != currentPage || first.getHeight() <= 0) return 0;
+
+        double top = pdfPageFlow.sceneToLocal(first.localToScene(0, 0)).getY();
+        return Math.max(0, Math.min(1, -top / first.getHeight()));
+    }
+
+    /**
+     * Track the page being read and render the pages around it, further
+     * ahead in the direction of scrolling
+     */
+    private void onContinuousScroll() {
+        if (!pdfContinuous || pdfPageFlow == null) return;
+        IndexedCell<?> first = pdfPageFlow.getFirstVisibleCell();
+        IndexedCell<?> last = pdfPageFlow.getLastVisibleCell();
+        if (first == null || last == null) return;
+
+        double position = pdfPageFlow.getPosition();
+        boolean forward = position >= lastFlowPosition;
+        lastFlowPosition = position;
+
+        int firstWanted = Math.max(0, first.getIndex() - (forward ? 0 : CONTINUOUS_PREFETCH_PAGES));
+        int lastWanted = Math.min(totalPages - 1, last.getIndex() + (forward ? CONTINUOUS_PREFETCH_PAGES : 0));
+        continuousFirstWanted = firstWanted;
+        continuousLastWanted = lastWanted;
+        for (int page = firstWanted; page <= lastWanted; page++) {
+            requestContinuousPage(page);
+        }
+
+        int top = continuousTopPage();
+        if (top >= 0 && top != currentPage) {
+            currentPage = top;
+            updatePageInfo();
+            scheduleContinuousProgressSave();
+        }
+    }
+
+    private void scheduleContinuousProgressSave() {
+        if (scrollSaveExecutor == null) {
+            scrollSaveExecutor = java.util.concurrent.Executors.newSingleThreadScheduledExecutor();
+        }
+        java.util.concurrent.ScheduledFuture<?> currentFuture = scrollSaveFuture.get();
+        if (currentFuture != null && !currentFuture.isDone()) {
+            currentFuture.cancel(false);
+        }
+        scrollSaveFuture.set(scrollSaveExecutor.schedule(this::saveReadingProgress, 1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Render a page for the continuous view unless it is cached. Pages on
+     * screen go before prefetched ones; pages scrolled past before their
+     * turn comes are skipped.
+     */
+    private void requestContinuousPage(int pageIndex) {
+        PdfRenderScheduler renders = pdfRenders;
+        if (renders == null || pdfPageCache.contains(pageIndex)) return;
+
+        PdfTileRenderer tiles = pdfTiles;
+        boolean firstRequest = pendingContinuousRenders.add(pageIndex);
+        // Submitting again raises the priority of a prefetch that came into view
+        CompletableFuture<Image> render = renders.submit(pageIndex,
+                shownContinuousPages.contains(pageIndex) ? PdfRenderScheduler.Priority.VISIBLE
+                        : PdfRenderScheduler.Priority.PREFETCH,
+                () -> tiles == pdfTiles && (shownContinuousPages.contains(pageIndex)
+                        || (pageIndex >= continuousFirstWanted && pageIndex <= continuousLastWanted)),
+                () -> renderPdfPage(pageIndex));
+        if (!firstRequest) return;
+
+        render.whenComplete((rendered, error) -> Platform.runLater(() -> {
+            pendingContinuousRenders.remove(pageIndex);
+            if (error != null && !(error instanceof CancellationException)) {
+                System.err.println("✗ Error rendering PDF page " + (pageIndex + 1) + ": " + error.getMessage());
+            }
+            if (rendered == null || tiles != pdfTiles) return;
+
+            pdfPageCache.put(pageIndex, rendered);
+            for (PdfPageCell cell : pdfPageCells) {
+                if (!cell.isEmpty() && cell.getItem() != null && cell.getItem() == pageIndex) {
+                    cell.showPage(pageIndex);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Read every page's size in the background so rows get their real
+     * heights; until then pages are assumed to be the size of the first
+     */
+    private void loadPdfPageSizes() {
+        PdfTileRenderer tiles = pdfTiles;
+        if (tiles == null || pageSizesLoadedFor == tiles) return;
+        pageSizesLoadedFor = tiles;
+        int pageCount = totalPages;
+
+        Thread thread = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            boolean uniform = true;
+            float[] first = null;
+            try {
+                for (float[] size : tiles.loadAllPageSizes()) {
+                    if (first == null) {
+                        first = size;
+                    } else if (Math.abs(size[0] - first[0]) > 0.5f || Math.abs(size[1] - first[1]) > 0.5f) {
+                        uniform = false;
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("✗ Error reading PDF page sizes: " + e.getMessage());
+                return;
+            }
+
+            boolean allSame = uniform;
+            System.out.println("✓ Read " + pageCount + " PDF page sizes in " + (System.currentTimeMillis() - start) + "ms"
+                    + (allSame ? " (uniform)" : ""));
+            Platform.runLater(() -> {
+                if (tiles != pdfTiles || !pdfContinuous) return;
+                uniformPageSizes = allSame;
+                updatePdfLayout();
+                for (PdfPageCell cell : pdfPageCells) {
+                    if (!cell.isEmpty() && cell.getItem() != null) {
+                        cell.showPage(cell.getItem());
+                    }
+                }
+            });
+        }, "pdf-page-sizes");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private double continuousPageWidth() {
+        return Math.max(100, pdfPageList.getWidth() - 40) * pdfZoom;
+    }
+
+    private float[] continuousPageSize(int pageIndex) {
+        PdfTileRenderer tiles = pdfTiles;
+        float[] size = tiles != null ? tiles.getKnownPageSize(pageIndex) : null;
+        if (size == null && tiles != null) {
+            size = tiles.getKnownPageSize(0);
+        }
+        return size != null ? size : new float[]{612f, 792f};
+    }
+
+    private double continuousRowHeight(int pageIndex) {
+        float[] size = continuousPageSize(pageIndex);
+        return Math.ceil(continuousPageWidth() * size[1] / size[0]) + CONTINUOUS_PAGE_GAP;
+    }
+
+    /**
+     * Drop the open PDF's pages from the views and the page cache
+     */
+    private void clearPdfPageViews() {
+        PdfPageCache.Stats stats = pdfPageCache.getStats();
+        if (stats.entries > 0) {
+            System.out.println("→ PDF page cache: " + stats);
+        }
+        pdfPageCache.clear();
+        pendingContinuousRenders.clear();
+        shownContinuousPages.clear();
+        pageSizesLoadedFor = null;
+        uniformPageSizes = false;
+        if (pdfPageView != null) {
+            pdfPageView.clear();
+        }
+        if (pdfPageList != null) {
+            pdfPageList.getItems().clear();
+        }
+    }
+
+    /**
+     * A row of the continuous PDF view. Rows are reused as the list scrolls,
+     * so a page's image is only held while its row is on screen.
+     */
+    private class PdfPageCell extends ListCell<Integer> {
+        private final PdfPageView pageView = new PdfPageView();
+        private int shownPage = -1;
+
+        PdfPageCell() {
+            pageView.setViewport(pdfPageList);
+            setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+            setAlignment(javafx.geometry.Pos.CENTER);
+            setStyle("-fx-background-color: transparent; -fx-padding: " + (CONTINUOUS_PAGE_GAP / 2) + " 0;");
+            pageView.setStyle("-fx-background-color: white;");
+            pdfPageCells.add(this);
+        }
+
+        @Override
+        protected void updateItem(Integer pageIndex, boolean empty) {
+            super.updateItem(pageIndex, empty);
+            if (shownPage >= 0) {
+                shownContinuousPages.remove(shownPage);
+                shownPage = -1;
+            }
+            if (empty || pageIndex == null) {
+                pageView.clear();
+                setGraphic(null);
+                return;
+            }
+
+            shownPage = pageIndex;
+            shownContinuousPages.add(pageIndex);
+            showPage(pageIndex);
+            setGraphic(pageView);
+            if (!pdfPageCache.contains(pageIndex)) {
+                requestContinuousPage(pageIndex);
+            }
+        }
+
+        void showPage(int pageIndex) {
+            // Fall back to a downgraded preview while the full page is rendered
+            Image image = pdfPageCache.get(pageIndex);
+            if (image == null) {
+                image = pdfPageCache.getPreview(pageIndex);
+            }
+            pageView.setPage(pdfTiles, pageIndex, continuousPageSize(pageIndex), image);
+            pageView.setDisplayWidth(continuousPageWidth());
+        }
+    }
+
+    private void closeEpubChapters() {
+        if (epubChapters != null) {
+            epubChapters.close();
+            epubChapters = null;
+        }
+    }
+
     private void hideBackButton() {
         if (backButton != null) {
             backButton.setVisible(false);
@@ -970,22 +1532,24 @@ public class ReaderController {
         });
 
         new Thread(() -> {
-            // Đóng tài liệu cũ nếu có
-            if (currentPdfDocument != null) {
+            closePdfSession();
+
+            try {
+                // Reuses the document if the pool still has it open
+                PdfDocumentPool.Session session = PdfDocumentPool.getInstance().acquire(filePath);
+                synchronized (session.getLock()) {
+                    this.totalPages = session.getDocument().getNumberOfPages();
+                }
+                pdfSession = session;
+                // A render handle per page worker, plus one for zoom tiles
+                PdfTileRenderer tiles = new PdfTileRenderer(session, new PdfRenderEngine(filePath, PDF_RENDER_WORKERS + 1));
                 try {
-                    currentPdfDocument.close();
+                    tiles.setDiskCache(PdfPageDiskCache.forFile(filePath));
                 } catch (IOException e) {
-                    System.err.println("✗ Error closing previous PDF: " + e.getMessage());
+                    System.out.println("⚠ PDF pages won't be cached on disk: " + e.getMessage());
                 }
-                currentPdfDocument = null;
-                currentPdfRenderer = null;
-            }
-
-            try {
-                // Mở tài liệu PDF một lần duy nhất
-                currentPdfDocument = Loader.loadPDF(new File(filePath));
-                currentPdfRenderer = new PDFRenderer(currentPdfDocument);
-                this.totalPages = currentPdfDocument.getNumberOfPages();
+                pdfTiles = tiles;
+                pdfRenders = new PdfRenderScheduler("pdf-render", PDF_RENDER_WORKERS);
             } catch (IOException e) {
                 Platform.runLater(() ->
                         showError("Cannot open PDF", "Error opening PDF: " + e.getMessage()));
@@ -1006,9 +1570,15 @@ public class ReaderController {
                     epubWebView.setManaged(false);
                 }
                 if (pdfScrollPane != null) {
-                    pdfScrollPane.setVisible(true);
-                    pdfScrollPane.setManaged(true);
+                    pdfScrollPane.setVisible(!pdfContinuous);
+                    pdfScrollPane.setManaged(!pdfContinuous);
+                }
+                if (pdfPageList != null) {
+                    pdfPageList.setVisible(pdfContinuous);
+                    pdfPageList.setManaged(pdfContinuous);
                 }
+                pdfZoom = 1.0;
+                setZoomControlsVisible(true);
                 if (tocPane != null) {
                     tocPane.setVisible(false);
                     tocPane.setManaged(false);
@@ -1035,6 +1605,7 @@ public class ReaderController {
                     currentPage = 0;
                     lastSavedScrollPosition = 0.0;
                 }
+                applyStartPageOverride();
 
                 // Hiển thị trang đầu tiên (hoặc trang lưu từ trước)
                 displayPdfPage(currentPage);
@@ -1059,6 +1630,13 @@ public class ReaderController {
                     });
                 }
             });
+
+            // Start extracting page text for search while the first page renders
+            try {
+                PdfTextIndex.forFile(filePath);
+            } catch (IOException e) {
+                System.err.println("⚠ Could not start PDF text index: " + e.getMessage());
+            }
         }).start();
     }
 
@@ -1068,6 +1646,11 @@ public class ReaderController {
             return;
         }
 
+        if (pdfContinuous) {
+            showContinuousPage(pageIndex, lastSavedScrollPosition);
+            return;
+        }
+
         // Thông báo đang tải
         Platform.runLater(() -> {
             if (pageLabel != null) {
@@ -1079,82 +1662,121 @@ public class ReaderController {
         final double scrollToRestore = lastSavedScrollPosition;
         final boolean shouldRestoreScroll = scrollToRestore > 0;
 
+        // Supersede renders queued for pages the user has already left
+        PdfRenderScheduler renders = pdfRenders;
+        if (renders == null) return;
+        long generation = renders.nextGeneration();
+
         // Nếu đã có trong cache thì dùng ngay
         Image cached = pdfPageCache.get(pageIndex);
         if (cached != null) {
-            pdfImageView.fitWidthProperty().unbind();
-            pdfImageView.setImage(cached);
-            pdfImageView.setPreserveRatio(true);
-            pdfImageView.setSmooth(true);
-            pdfImageView.fitWidthProperty().bind(pdfScrollPane.widthProperty().subtract(20));
-            if (shouldRestoreScroll) {
-                schedulePdfScrollRestore(scrollToRestore, 0);
-            } else {
-                pdfScrollPane.setVvalue(0);
-                pdfScrollPane.setHvalue(0);
-            }
-            updatePageInfo();
+            placePdfPage(pageIndex, cached, scrollToRestore);
             saveReadingProgress();
-            // Preload trang kế tiếp
-            preloadPdfPage(pageIndex + 1);
+            preloadPdfNeighbours(pageIndex);
             return;
         }
 
-        // Nếu không có cache, render như cũ
-        Task<Image> renderTask = new Task<>() {
-            @Override
-            protected Image call() throws Exception {
-                if (currentPdfRenderer == null) {
-                    throw new IllegalStateException("PDF renderer is null");
+        // Show a preview or a quick draft first, and swap in the full page when it is ready
+        AtomicBoolean placed = new AtomicBoolean(false);
+        Image preview = pdfPageCache.getPreview(pageIndex);
+        if (preview != null) {
+            placePdfPage(pageIndex, preview, scrollToRestore);
+            placed.set(true);
+        } else {
+            requestPdfDraft(pageIndex, generation, draft -> {
+                if (!placed.get()) {
+                    placePdfPage(pageIndex, draft, scrollToRestore);
+                    placed.set(true);
                 }
-                float dpi = 96f * 2.0f;
-                BufferedImage bi = currentPdfRenderer.renderImageWithDPI(pageIndex, dpi);
-                return SwingFXUtils.toFXImage(bi, null);
-            }
-        };
+            });
+        }
 
-        renderTask.setOnSucceeded(evt -> {
-            Image pageImage = renderTask.getValue();
-            if (pageImage != null && pdfImageView != null) {
-                pdfImageView.fitWidthProperty().unbind();
-                pdfImageView.setImage(pageImage);
-                pdfImageView.setPreserveRatio(true);
-                pdfImageView.setSmooth(true);
-                pdfImageView.fitWidthProperty().bind(
-                        pdfScrollPane.widthProperty().subtract(20)
-                );
+        PdfTileRenderer tiles = pdfTiles;
+        renders.submit(pageIndex, PdfRenderScheduler.Priority.VISIBLE, () -> renderPdfPage(pageIndex))
+                .whenComplete((pageImage, error) -> Platform.runLater(() -> {
+                    if (tiles != pdfTiles || error instanceof CancellationException) return;
 
-                // Lưu vào cache
-                pdfPageCache.put(pageIndex, pageImage);
+                    // Keep a page the user has moved on from, but don't show it
+                    if (pageImage != null) {
+                        pdfPageCache.put(pageIndex, pageImage);
+                    }
+                    if (!renders.isCurrent(generation)) return;
+
+                    if (pageImage != null && pdfPageView != null) {
+                        if (placed.get()) {
+                            pdfPageView.setBaseImage(pageImage);
+                        } else {
+                            placePdfPage(pageIndex, pageImage, scrollToRestore);
+                            placed.set(true);
+                        }
 
-                if (shouldRestoreScroll) {
-                    schedulePdfScrollRestore(scrollToRestore, 0);
-                } else {
-                    pdfScrollPane.setVvalue(0);
-                    pdfScrollPane.setHvalue(0);
-                }
+                        System.out.println("✓ Displayed PDF page " + (pageIndex + 1));
+                        saveReadingProgress();
+                        preloadPdfNeighbours(pageIndex);
+                    } else {
+                        showError("Render Error", "Could not render page:\n"
+                                + (error != null ? error.getMessage() : "Unknown error"));
+                        updatePageInfo();
+                    }
+                }));
+    }
 
-                System.out.println("✓ Displayed PDF page " + (pageIndex + 1));
-            } else {
-                showError("Render Error", "Could not render page " + (pageIndex + 1));
-            }
+    /**
+     * Show a page in the single-page view, scrolled to the saved position or the top
+     */
+    private void placePdfPage(int pageIndex, Image image, double scrollToRestore) {
+        showPdfPageImage(pageIndex, image);
+        if (scrollToRestore > 0) {
+            schedulePdfScrollRestore(scrollToRestore, 0);
+        } else {
+            pdfScrollPane.setVvalue(0);
+            pdfScrollPane.setHvalue(0);
+        }
+        updatePageInfo();
+    }
 
-            updatePageInfo();
-            saveReadingProgress();
+    /**
+     * Render a low-DPI draft of a page ahead of everything else and keep it
+     * as the page's preview. onReady runs on the FX thread, unless the user
+     * has moved on since the given render generation.
+     */
+    private void requestPdfDraft(int pageIndex, long generation, Consumer<Image> onReady) {
+        PdfRenderScheduler renders = pdfRenders;
+        if (renders == null) return;
+
+        PdfTileRenderer tiles = pdfTiles;
+        renders.submit(pageIndex, PdfRenderScheduler.Priority.DRAFT, () -> renderPdfDraft(pageIndex))
+                .whenComplete((draft, error) -> Platform.runLater(() -> {
+                    if (draft == null || tiles != pdfTiles) return;
+                    pdfPageCache.putPreview(pageIndex, draft);
+                    if (renders.isCurrent(generation)) {
+                        onReady.accept(draft);
+                    }
+                }));
+    }
 
-            // Preload trang kế tiếp
-            preloadPdfPage(pageIndex + 1);
-        });
+    /**
+     * While the page slider is dragged, show drafts of the pages passed over
+     * without saving progress; the page is opened properly on release
+     */
+    private void scrubPdfPage(int pageIndex) {
+        PdfRenderScheduler renders = pdfRenders;
+        if (pdfContinuous || renders == null || pageIndex < 0 || pageIndex >= totalPages) return;
 
-        renderTask.setOnFailed(evt -> {
-            Throwable ex = renderTask.getException();
-            showError("Render Error",
-                    "Could not render page:\n" +
-                            (ex != null ? ex.getMessage() : "Unknown error"));
-            updatePageInfo();
-        });
+        long generation = renders.nextGeneration();
+        if (pageLabel != null) {
+            pageLabel.setText(String.format("Page %d / %d", pageIndex + 1, totalPages));
+        }
 
-        new Thread(renderTask).start();
+        Image image = pdfPageCache.get(pageIndex);
+        if (image == null) {
+            image = pdfPageCache.getPreview(pageIndex);
+        }
+        if (image != null) {
+            placePdfPage(pageIndex, image, 0);
+            return;
+        }
+        requestPdfDraft(pageIndex, generation, draft -> placePdfPage(pageIndex, draft, 0));
     }
 
     private void updatePageInfo() {
@@ -1247,7 +1869,8 @@ public class ReaderController {
 
                     Platform.runLater(() -> {
                         try {
-                            double scrollPosition = pdfScrollPane.getVvalue();
+                            double scrollPosition = pdfContinuous
+                                    ? continuousPageFraction() : pdfScrollPane.getVvalue();
 
                             // NEW: Calculate accurate progress for PDF
                             double progress = calculateAccurateProgress(currentPage, scrollPosition, totalPages);
@@ -1294,6 +1917,10 @@ public class ReaderController {
         }
     }
 
+    private boolean isPdfOpen() {
+        return currentBook != null && currentBook.getFileType().equalsIgnoreCase("PDF") && pdfRenders != null;
+    }
+
     private void goToPage(int pageIndex) {
         if (currentBook == null || pageIndex < 0 || pageIndex >= totalPages) {
             return;
@@ -1478,11 +2105,11 @@ public class ReaderController {
             scrollSaveExecutor = null;
         }
 
-        // Cleanup temp directory before leaving
-        if (currentEpubService != null) {
-            currentEpubService.cleanupTempDir();
-            currentEpubService = null;
-        }
+        // Release the EPUB archive or PDF before leaving
+        closeEpubChapters();
+        closePdfSession();
+        clearPdfPageViews();
+        clearSearch();
 
         try {
             Main.loadView("library.fxml", "Ebook Reader");
@@ -1510,6 +2137,349 @@ public class ReaderController {
         });
     }
 
+    /**
+     * Wire up the search box and its result list in the TOC pane
+     */
+    private void setupSearch() {
+        if (searchField == null || searchResultsView == null) return;
+
+        searchField.setOnAction(e -> startSearch(searchField.getText()));
+        searchField.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ESCAPE) {
+                searchField.clear();
+                clearSearch();
+                readerPane.requestFocus();
+            }
+        });
+
+        searchResultsView.setCellFactory(lv -> new ListCell<SearchResult>() {
+            {
+                setWrapText(true);
+                setPrefWidth(0); // wrap to the list's width instead of growing it
+            }
+
+            @Override
+            protected void updateItem(SearchResult item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : item.location + "  " + item.snippet);
+            }
+        });
+
+        searchResultsView.setOnMouseClicked(event -> {
+            SearchResult selected = searchResultsView.getSelectionModel().getSelectedItem();
+            if (selected != null) {
+                openSearchResult(selected);
+            }
+        });
+    }
+
+    /**
+     * Show the TOC pane if needed and focus the search box
+     */
+    private void showSearch() {
+        if (searchField == null) return;
+
+        if (tocPane != null && !tocPane.isVisible()) {
+            isTocVisible = false;
+            handleToggleTOC();
+        }
+        searchField.requestFocus();
+        searchField.selectAll();
+    }
+
+    private void startSearch(String query) {
+        int generation = searchGeneration.incrementAndGet();
+        if (query == null || query.isBlank() || currentBook == null) {
+            clearSearch();
+            return;
+        }
+
+        searchResultsView.getItems().clear();
+        searchResultsView.setVisible(true);
+        searchResultsView.setManaged(true);
+        setSearchStatus("Searching…");
+        activeSearchQuery = query.trim();
+
+        if (currentBook.getFileType().equalsIgnoreCase("PDF")) {
+            searchPdf(currentBook.getFilePath(), query.trim(), generation);
+        } else if (currentBook.getFileType().equalsIgnoreCase("EPUB")) {
+            searchEpub(currentBook.getFilePath(), query.trim(), generation);
+        } else {
+            setSearchStatus("Search is not available for this book");
+        }
+    }
+
+    /**
+     * Search the EPUB's chapter texts on a background thread; results are
+     * added to the list in batches as they are found
+     */
+    private void searchEpub(String filePath, String query, int generation) {
+        Thread thread = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            List<SearchResult> batch = new ArrayList<>();
+            int[] found = {0};
+            long[] lastFlush = {start};
+
+            try {
+                EpubTextIndex index = EpubTextIndex.forFile(filePath);
+                index.search(query, hit -> {
+                    if (found[0] >= MAX_SEARCH_RESULTS) return;
+                    found[0]++;
+                    batch.add(new SearchResult(hit.chapterIndex, "Ch. " + (hit.chapterIndex + 1), hit.snippet,
+                            hit.offset, hit.nodeIndex, hit.nodeOffset, hit.occurrence));
+
+                    long now = System.currentTimeMillis();
+                    if (batch.size() >= 50 || now - lastFlush[0] > 100) {
+                        publishSearchResults(generation, batch, "Searching… " + found[0] + " result(s), chapter "
+                                + (hit.chapterIndex + 1) + " of " + index.getChapterCount());
+                        lastFlush[0] = now;
+                    }
+                }, () -> searchGeneration.get() != generation || found[0] >= MAX_SEARCH_RESULTS);
+
+                String status = found[0] >= MAX_SEARCH_RESULTS
+                        ? "Showing the first " + MAX_SEARCH_RESULTS + " results"
+                        : found[0] + " result(s)";
+                publishSearchResults(generation, batch, status);
+                System.out.println("✓ EPUB search for \"" + query + "\": " + found[0] + " hit(s) in "
+                        + (System.currentTimeMillis() - start) + "ms");
+            } catch (Exception e) {
+                System.err.println("✗ Error searching EPUB: " + e.getMessage());
+                publishSearchResults(generation, batch, "Search failed: " + e.getMessage());
+            }
+        }, "book-search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Search the PDF's text index on a background thread; results are added
+     * to the list in batches as they are found
+     */
+    private void searchPdf(String filePath, String query, int generation) {
+        Thread thread = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            List<SearchResult> batch = new ArrayList<>();
+            int[] found = {0};
+            long[] lastFlush = {start};
+
+            try {
+                PdfTextIndex index = PdfTextIndex.forFile(filePath);
+                index.search(query, hit -> {
+                    if (found[0] >= MAX_SEARCH_RESULTS) return;
+                    found[0]++;
+                    batch.add(new SearchResult(hit.pageIndex, "p. " + (hit.pageIndex + 1), hit.snippet, hit.offset));
+
+                    long now = System.currentTimeMillis();
+                    if (batch.size() >= 50 || now - lastFlush[0] > 100) {
+                        publishSearchResults(generation, batch, "Searching… " + found[0] + " result(s), "
+                                + index.getIndexedPages() + " of " + index.getPageCount() + " pages indexed");
+                        lastFlush[0] = now;
+                    }
+                }, () -> searchGeneration.get() != generation || found[0] >= MAX_SEARCH_RESULTS);
+
+                String status = found[0] >= MAX_SEARCH_RESULTS
+                        ? "Showing the first " + MAX_SEARCH_RESULTS + " results"
+                        : found[0] + " result(s)";
+                publishSearchResults(generation, batch, status);
+                System.out.println("✓ PDF search for \"" + query + "\": " + found[0] + " hit(s) in "
+                        + (System.currentTimeMillis() - start) + "ms");
+            } catch (Exception e) {
+                System.err.println("✗ Error searching PDF: " + e.getMessage());
+                publishSearchResults(generation, batch, "Search failed: " + e.getMessage());
+            }
+        }, "book-search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hand a batch of results to the FX thread unless a newer search started
+     */
+    private void publishSearchResults(int generation, List<SearchResult> batch, String status) {
+        List<SearchResult> results = new ArrayList<>(batch);
+        batch.clear();
+
+        Platform.runLater(() -> {
+            if (searchGeneration.get() != generation) return;
+            searchResultsView.getItems().addAll(results);
+            setSearchStatus(status);
+        });
+    }
+
+    private void openSearchResult(SearchResult result) {
+        if (!currentBook.getFileType().equalsIgnoreCase("EPUB") || epubWebView == null) {
+            goToPage(result.pageIndex);
+            return;
+        }
+
+        String query = activeSearchQuery;
+        if (result.pageIndex == currentPage) {
+            highlightSearchResult(result, query);
+            return;
+        }
+
+        // Land on the hit instead of the chapter's saved scroll position
+        lastSavedScrollPosition = 0.0;
+        epubWebView.getEngine().getLoadWorker().stateProperty().addListener(
+                new javafx.beans.value.ChangeListener<Worker.State>() {
+                    @Override
+                    public void changed(javafx.beans.value.ObservableValue<? extends Worker.State> observable,
+                                        Worker.State oldValue, Worker.State newValue) {
+                        if (newValue == Worker.State.SUCCEEDED || newValue == Worker.State.FAILED
+                                || newValue == Worker.State.CANCELLED) {
+                            observable.removeListener(this);
+                            if (newValue == Worker.State.SUCCEEDED && currentPage == result.pageIndex) {
+                                highlightSearchResult(result, query);
+                            }
+                        }
+                    }
+                });
+        goToPage(result.pageIndex);
+    }
+
+    /**
+     * Select an EPUB hit in the displayed chapter and scroll it into view.
+     * The hit is looked up by its text node first; where the rendered DOM
+     * doesn't line up with the indexed text, the n-th occurrence of the
+     * query in the chapter is used instead.
+     */
+    private void highlightSearchResult(SearchResult result, String query) {
+        if (query == null || query.isEmpty()) return;
+
+        String script = String.format("""
+            (function(query, nodeIndex, nodeOffset, occurrence) {
+                var walker = document.createTreeWalker(document.body, NodeFilter.SHOW_TEXT, {
+                    acceptNode: function(node) {
+                        var parent = node.parentNode ? node.parentNode.nodeName : '';
+                        if (parent === 'SCRIPT' || parent === 'STYLE' || parent === 'TITLE'
+                                || node.nodeValue.trim().length === 0) {
+                            return NodeFilter.FILTER_REJECT;
+                        }
+                        return NodeFilter.FILTER_ACCEPT;
+                    }
+                }, false);
+                var nodes = [], starts = [], text = '';
+                while (walker.nextNode()) {
+                    nodes.push(walker.currentNode);
+                    starts.push(text.length);
+                    text += walker.currentNode.nodeValue;
+                }
+                var folded = text.toLowerCase(), needle = query.toLowerCase();
+
+                var start = -1;
+                if (nodeIndex >= 0 && nodeIndex < nodes.length) {
+                    var candidate = starts[nodeIndex] + nodeOffset;
+                    if (folded.substr(candidate, needle.length) === needle) start = candidate;
+                }
+                if (start < 0) {
+                    start = folded.indexOf(needle);
+                    for (var seen = 0; start >= 0 && seen < occurrence; seen++) {
+                        var next = folded.indexOf(needle, start + needle.length);
+                        if (next < 0) break;
+                        start = next;
+                    }
+                }
+                if (start < 0) return false;
+
+                function locate(offset) {
+                    var i = nodes.length - 1;
+                    while (i > 0 && starts[i] > offset) i--;
+                    return { node: nodes[i], offset: Math.min(offset - starts[i], nodes[i].nodeValue.length) };
+                }
+                var from = locate(start), to = locate(start + needle.length);
+                var range = document.createRange();
+                range.setStart(from.node, from.offset);
+                range.setEnd(to.node, to.offset);
+
+                var selection = window.getSelection();
+                selection.removeAllRanges();
+                selection.addRange(range);
+
+                var rect = range.getBoundingClientRect();
+                window.scrollTo(0, Math.max(0, window.pageYOffset + rect.top - window.innerHeight / 3));
+                return true;
+            })('%s', %d, %d, %d);
+        """, escapeJs(query), result.nodeIndex, result.nodeOffset, result.occurrence);
+
+        try {
+            Object found = epubWebView.getEngine().executeScript(script);
+            if (!Boolean.TRUE.equals(found)) {
+                System.out.println("⚠ Search hit not found in chapter " + (result.pageIndex + 1));
+            }
+        } catch (Exception e) {
+            System.err.println("✗ Error highlighting search hit: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escape text for use inside a single-quoted JavaScript string
+     */
+    private static String escapeJs(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (char c : text.toCharArray()) {
+            if (c == '\\' || c == '\'') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20 || c == '<' || c == '\u2028' || c == '\u2029') {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private void setSearchStatus(String status) {
+        if (searchStatusLabel == null) return;
+        searchStatusLabel.setText(status);
+        searchStatusLabel.setVisible(true);
+        searchStatusLabel.setManaged(true);
+    }
+
+    /**
+     * Stop any running search and hide its results
+     */
+    private void clearSearch() {
+        searchGeneration.incrementAndGet();
+        if (searchResultsView != null) {
+            searchResultsView.getItems().clear();
+            searchResultsView.setVisible(false);
+            searchResultsView.setManaged(false);
+        }
+        if (searchStatusLabel != null) {
+            searchStatusLabel.setVisible(false);
+            searchStatusLabel.setManaged(false);
+        }
+    }
+
+    /**
+     * One search hit; pageIndex is the PDF page or EPUB chapter
+     */
+    public static class SearchResult {
+        public final int pageIndex;
+        public final String location;
+        public final String snippet;
+        public final int offset;
+        /** EPUB only: where the hit is in the chapter DOM, see EpubTextIndex.SearchHit */
+        public final int nodeIndex;
+        public final int nodeOffset;
+        public final int occurrence;
+
+        public SearchResult(int pageIndex, String location, String snippet, int offset) {
+            this(pageIndex, location, snippet, offset, -1, 0, 0);
+        }
+
+        public SearchResult(int pageIndex, String location, String snippet, int offset,
+                            int nodeIndex, int nodeOffset, int occurrence) {
+            this.pageIndex = pageIndex;
+            this.location = location;
+            this.snippet = snippet;
+            this.offset = offset;
+            this.nodeIndex = nodeIndex;
+            this.nodeOffset = nodeOffset;
+            this.occurrence = occurrence;
+        }
+    }
+
     public static class TocItem {
         public String title;
         public int pageIndex;
@@ -1591,32 +2561,35 @@ public class ReaderController {
             }
         }).start();
     }
-    private void preloadPdfPage(int pageIndex) {
+    /**
+     * Render the pages after and before the one shown once it is on screen:
+     * a page ahead per render worker, then the previous page
+     */
+    private void preloadPdfNeighbours(int pageIndex) {
+        preloadPdfPage(pageIndex + 1, PdfRenderScheduler.Priority.NEXT);
+        preloadPdfPage(pageIndex - 1, PdfRenderScheduler.Priority.PREVIOUS);
+        // Newer requests of the same priority go first, so queue the furthest page first
+        for (int ahead = PDF_RENDER_WORKERS; ahead >= 2; ahead--) {
+            preloadPdfPage(pageIndex + ahead, PdfRenderScheduler.Priority.PREFETCH);
+        }
+    }
+
+    private void preloadPdfPage(int pageIndex, PdfRenderScheduler.Priority priority) {
         // Chỉ preload nếu trong phạm vi và chưa có cache
         if (pageIndex < 0 || pageIndex >= totalPages) return;
-        if (pdfPageCache.containsKey(pageIndex)) return;
+        if (pdfPageCache.contains(pageIndex)) return;
 
-        Task<Image> preloadTask = new Task<>() {
-            @Override
-            protected Image call() throws Exception {
-                if (currentPdfRenderer == null) {
-                    return null;
-                }
-                float dpi = 96f * 2.0f;
-                BufferedImage bi = currentPdfRenderer.renderImageWithDPI(pageIndex, dpi);
-                return SwingFXUtils.toFXImage(bi, null);
-            }
-        };
+        PdfRenderScheduler renders = pdfRenders;
+        if (renders == null) return;
 
-        preloadTask.setOnSucceeded(ev -> {
-            Image img = preloadTask.getValue();
-            if (img != null) {
-                pdfPageCache.put(pageIndex, img);
-                System.out.println("✓ Preloaded PDF page " + (pageIndex + 1));
-            }
-        });
-
-        new Thread(preloadTask).start();
+        PdfTileRenderer tiles = pdfTiles;
+        renders.submit(pageIndex, priority, () -> renderPdfPage(pageIndex))
+                .whenComplete((img, error) -> Platform.runLater(() -> {
+                    if (img != null && tiles == pdfTiles) {
+                        pdfPageCache.put(pageIndex, img);
+                        System.out.println("✓ Preloaded PDF page " + (pageIndex + 1));
+                    }
+                }));
     }
 
 }
\ No newline at end of file
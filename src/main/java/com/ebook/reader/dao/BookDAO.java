@@ -2,10 +2,14 @@ package com.ebook.reader.dao;
 
 import com.ebook.reader.model.Book;
 
+import java.io.File;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class BookDAO {
     private final Connection connection;
@@ -17,8 +21,9 @@ public class BookDAO {
     // Add a new book
     public int addBook(Book book) throws SQLException {
         String sql = """
-            INSERT INTO books (title, author, file_path, file_type, cover_path, total_pages, is_favorite)
-            VALUES (?, ?, ?, ?, ?, ?, ?)
+            INSERT INTO books (title, author, file_path, file_type, cover_path, total_pages, is_favorite,
+                               file_size, file_mtime, file_hash)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
         """;
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -29,6 +34,9 @@ public class BookDAO {
             pstmt.setString(5, book.getCoverPath());
             pstmt.setInt(6, book.getTotalPages());
             pstmt.setBoolean(7, book.isFavorite());
+            pstmt.setLong(8, book.getFileSize());
+            pstmt.setLong(9, book.getFileModified());
+            pstmt.setString(10, book.getFileHash());
 
             int affectedRows = pstmt.executeUpdate();
 
@@ -49,6 +57,82 @@ public class BookDAO {
         }
     }
 
+    /**
+     * Add or update many books in a single transaction.
+     * A book whose file_path is already in the library updates the existing
+     * row (favorite flag, dates and reading progress are kept). Returns the
+     * row ids in the same order as the given books.
+     *
+     * Runs on its own connection, so statements other code runs on the
+     * shared connection meanwhile are neither part of nor rolled back with
+     * this transaction.
+     */
+    public List<Integer> addBooks(Collection<Book> books) throws SQLException {
+        List<Integer> ids = new ArrayList<>(books.size());
+        if (books.isEmpty()) {
+            return ids;
+        }
+
+        String upsertSql = """
+            INSERT INTO books (title, author, file_path, file_type, cover_path, total_pages, is_favorite,
+                               file_size, file_mtime, file_hash)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT(file_path) DO UPDATE SET
+                title = excluded.title,
+                author = excluded.author,
+                file_type = excluded.file_type,
+                cover_path = excluded.cover_path,
+                total_pages = excluded.total_pages,
+                file_size = excluded.file_size,
+                file_mtime = excluded.file_mtime,
+                file_hash = excluded.file_hash,
+                is_missing = 0
+        """;
+        // sqlite-jdbc only reports the last generated key of a batch, and none for
+        // updated rows, so ids are looked up by path inside the same transaction
+        String idSql = "SELECT id FROM books WHERE file_path = ?";
+
+        try (Connection batch = DatabaseManager.getInstance().openConnection()) {
+            batch.setAutoCommit(false);
+
+            try (PreparedStatement upsert = batch.prepareStatement(upsertSql);
+                 PreparedStatement selectId = batch.prepareStatement(idSql)) {
+
+                for (Book book : books) {
+                    upsert.setString(1, book.getTitle());
+                    upsert.setString(2, book.getAuthor());
+                    upsert.setString(3, book.getFilePath());
+                    upsert.setString(4, book.getFileType());
+                    upsert.setString(5, book.getCoverPath());
+                    upsert.setInt(6, book.getTotalPages());
+                    upsert.setBoolean(7, book.isFavorite());
+                    upsert.setLong(8, book.getFileSize());
+                    upsert.setLong(9, book.getFileModified());
+                    upsert.setString(10, book.getFileHash());
+                    upsert.addBatch();
+                }
+                upsert.executeBatch();
+
+                for (Book book : books) {
+                    selectId.setString(1, book.getFilePath());
+                    try (ResultSet rs = selectId.executeQuery()) {
+                        if (!rs.next()) {
+                            throw new SQLException("Saving book failed, no ID for " + book.getFilePath());
+                        }
+                        ids.add(rs.getInt(1));
+                    }
+                }
+
+                batch.commit();
+            } catch (SQLException e) {
+                batch.rollback();
+                throw e;
+            }
+        }
+
+        return ids;
+    }
+
     // Get all books
     public List<Book> getAllBooks() throws SQLException {
         List<Book> books = new ArrayList<>();
@@ -183,6 +267,92 @@ public class BookDAO {
         }
     }
 
+    // ========== FILE STATE ==========
+
+    /**
+     * Size, modification time and content hash recorded for a book file
+     */
+    public static class FileState {
+        public int bookId;
+        public String filePath;
+        public long fileSize;
+        public long fileModified;
+        public String fileHash;
+        public boolean missing;
+    }
+
+    /**
+     * Get the recorded file state of the books at the given paths or in the
+     * folders below them, keyed by file path
+     */
+    public Map<String, FileState> getFileStates(Collection<String> paths) throws SQLException {
+        Map<String, FileState> states = new HashMap<>();
+        // Paths below a folder are the range [folder + separator, folder + next character),
+        // which the file_path index can serve
+        String sql = """
+            SELECT id, file_path, file_size, file_mtime, file_hash, is_missing FROM books
+            WHERE file_path = ? OR (file_path >= ? AND file_path < ?)
+        """;
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (String path : paths) {
+                String prefix = path.endsWith(File.separator) ? path : path + File.separator;
+                pstmt.setString(1, path);
+                pstmt.setString(2, prefix);
+                pstmt.setString(3, prefix.substring(0, prefix.length() - 1) + (char) (File.separatorChar + 1));
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        FileState state = new FileState();
+                        state.bookId = rs.getInt("id");
+                        state.filePath = rs.getString("file_path");
+                        state.fileSize = rs.getLong("file_size");
+                        state.fileModified = rs.getLong("file_mtime");
+                        state.fileHash = rs.getString("file_hash");
+                        state.missing = rs.getBoolean("is_missing");
+                        states.put(state.filePath, state);
+                    }
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Store new file states (size, mtime, hash, missing flag) in one
+     * transaction, on its own connection like {@link #addBooks}
+     */
+    public void updateFileStates(Collection<FileState> states) throws SQLException {
+        if (states.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            UPDATE books SET file_size = ?, file_mtime = ?, file_hash = ?, is_missing = ?
+            WHERE id = ?
+        """;
+
+        try (Connection batch = DatabaseManager.getInstance().openConnection()) {
+            batch.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = batch.prepareStatement(sql)) {
+                for (FileState state : states) {
+                    pstmt.setLong(1, state.fileSize);
+                    pstmt.setLong(2, state.fileModified);
+                    pstmt.setString(3, state.fileHash);
+                    pstmt.setBoolean(4, state.missing);
+                    pstmt.setInt(5, state.bookId);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                batch.commit();
+            } catch (SQLException e) {
+                batch.rollback();
+                throw e;
+            }
+        }
+    }
+
     // ========== READING PROGRESS ==========
 
     /**
@@ -258,6 +428,23 @@ public class BookDAO {
         return 0.0;
     }
 
+    /**
+     * Get reading progress percentage of all books with saved progress, keyed by book id
+     */
+    public Map<Integer, Double> getAllProgressPercentages() throws SQLException {
+        Map<Integer, Double> progress = new HashMap<>();
+        String sql = "SELECT book_id, progress_percentage FROM reading_progress";
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                progress.put(rs.getInt("book_id"), rs.getDouble("progress_percentage"));
+            }
+        }
+        return progress;
+    }
+
     // ========== BOOKMARKS ==========
 
     /**
@@ -329,6 +516,10 @@ public class BookDAO {
         book.setCoverPath(rs.getString("cover_path"));
         book.setTotalPages(rs.getInt("total_pages"));
         book.setFavorite(rs.getBoolean("is_favorite"));
+        book.setFileSize(rs.getLong("file_size"));
+        book.setFileModified(rs.getLong("file_mtime"));
+        book.setFileHash(rs.getString("file_hash"));
+        book.setMissing(rs.getBoolean("is_missing"));
 
         Timestamp dateAdded = rs.getTimestamp("date_added");
         if (dateAdded != null) {
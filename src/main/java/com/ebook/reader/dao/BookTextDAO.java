@@ -0,0 +1,192 @@
+package com.ebook.reader.dao;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full-text index of book contents in the book_text FTS5 table.
+ *
+ * Each EPUB chapter or PDF page is one row; rowid = (book id << 20) + section
+ * index, so a book's rows can be replaced or deleted as one rowid range.
+ */
+public class BookTextDAO {
+    private static final int SECTION_BITS = 20;
+    private static final int MAX_SECTIONS = 1 << SECTION_BITS;
+
+    private final Connection connection;
+
+    public BookTextDAO() {
+        this.connection = DatabaseManager.getInstance().getConnection();
+    }
+
+    /**
+     * DAO on a given connection, e.g. one from {@link DatabaseManager#openConnection()}
+     */
+    public BookTextDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * One ranked match of a library-wide text search
+     */
+    public static class TextHit {
+        public int bookId;
+        public String title;
+        public String fileType;
+        /** EPUB chapter or PDF page index */
+        public int section;
+        public String snippet;
+    }
+
+    /**
+     * Replace the indexed text of a book in one transaction. Call this on a
+     * DAO with its own connection, so the transaction doesn't take in
+     * statements other code runs on the shared connection meanwhile.
+     */
+    public void replaceBookText(int bookId, String fileHash, List<String> sections) throws SQLException {
+        int count = Math.min(sections.size(), MAX_SECTIONS);
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            deleteRows(bookId);
+
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT INTO book_text (rowid, content) VALUES (?, ?)")) {
+                long base = (long) bookId << SECTION_BITS;
+                for (int i = 0; i < count; i++) {
+                    String text = sections.get(i);
+                    if (text == null || text.isBlank()) continue;
+
+                    pstmt.setLong(1, base + i);
+                    pstmt.setString(2, text);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT OR REPLACE INTO book_text_status (book_id, file_hash, section_count, indexed_at) " +
+                            "VALUES (?, ?, ?, CURRENT_TIMESTAMP)")) {
+                pstmt.setInt(1, bookId);
+                pstmt.setString(2, fileHash);
+                pstmt.setInt(3, count);
+                pstmt.executeUpdate();
+            }
+
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Remove a book's text from the index
+     */
+    public void deleteBookText(int bookId) throws SQLException {
+        deleteRows(bookId);
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "DELETE FROM book_text_status WHERE book_id = ?")) {
+            pstmt.setInt(1, bookId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void deleteRows(int bookId) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "DELETE FROM book_text WHERE rowid BETWEEN ? AND ?")) {
+            long base = (long) bookId << SECTION_BITS;
+            pstmt.setLong(1, base);
+            pstmt.setLong(2, base + MAX_SECTIONS - 1);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * File hash each indexed book was indexed at, keyed by book id
+     */
+    public Map<Integer, String> getIndexedHashes() throws SQLException {
+        Map<Integer, String> hashes = new HashMap<>();
+        String sql = "SELECT book_id, file_hash FROM book_text_status";
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                hashes.put(rs.getInt("book_id"), rs.getString("file_hash"));
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Best matching chapters/pages across the library, best first
+     */
+    public List<TextHit> search(String query, int limit) throws SQLException {
+        List<TextHit> hits = new ArrayList<>();
+        String match = toMatchQuery(query);
+        if (match == null) {
+            return hits;
+        }
+
+        String sql = """
+            SELECT t.rowid AS row_id, snippet(book_text, 0, '«', '»', '…', 16) AS snippet,
+                   b.id AS book_id, b.title, b.file_type
+            FROM book_text t
+            JOIN books b ON b.id = (t.rowid >> 20)
+            WHERE book_text MATCH ?
+            ORDER BY t.rank
+            LIMIT ?
+        """;
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, match);
+            pstmt.setInt(2, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    TextHit hit = new TextHit();
+                    hit.bookId = rs.getInt("book_id");
+                    hit.title = rs.getString("title");
+                    hit.fileType = rs.getString("file_type");
+                    hit.section = (int) (rs.getLong("row_id") & (MAX_SECTIONS - 1));
+                    hit.snippet = rs.getString("snippet").replaceAll("\\s+", " ").trim();
+                    hits.add(hit);
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Turn user input into an FTS5 query: every word must appear, the last
+     * one as a prefix so results show up while typing. Quoting each word
+     * keeps FTS5 syntax characters in the input from breaking the query.
+     */
+    static String toMatchQuery(String query) {
+        if (query == null) return null;
+
+        List<String> words = new ArrayList<>();
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        if (words.isEmpty()) return null;
+
+        StringBuilder match = new StringBuilder();
+        for (int i = 0; i < words.size(); i++) {
+            if (i > 0) match.append(' ');
+            match.append('"').append(words.get(i)).append('"');
+            if (i == words.size() - 1) {
+                match.append('*');
+            }
+        }
+        return match.toString();
+    }
+}
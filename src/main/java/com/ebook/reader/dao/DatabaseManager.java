@@ -7,6 +7,9 @@ public class DatabaseManager {
     private static DatabaseManager instance;
     private Connection connection;
     private static final String DB_NAME = "ebook_reader.db";
+    // How long a statement waits for another connection's transaction before failing
+    private static final int BUSY_TIMEOUT_MS = 10000;
+    private String url;
 
     private DatabaseManager() {
         try {
@@ -18,8 +21,14 @@ public class DatabaseManager {
                 dbDir.mkdirs();
             }
 
-            String url = "jdbc:sqlite:" + dbPath;
+            url = "jdbc:sqlite:" + dbPath;
             connection = DriverManager.getConnection(url);
+            configure(connection);
+            // Write-ahead logging lets the shared connection keep reading while a
+            // background writer's transaction is open; the mode is stored in the file
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA journal_mode = WAL");
+            }
             System.out.println("✓ Database connected: " + dbPath);
         } catch (SQLException e) {
             System.err.println("✗ Error connecting to database: " + e.getMessage());
@@ -37,6 +46,27 @@ public class DatabaseManager {
         return connection;
     }
 
+    /**
+     * Open a separate connection to the database for a background writer.
+     * Its transactions are isolated from the statements other DAOs run on the
+     * shared connection at the same time. The caller closes it.
+     */
+    public Connection openConnection() throws SQLException {
+        if (url == null) {
+            throw new SQLException("Database is not available");
+        }
+        Connection own = DriverManager.getConnection(url);
+        configure(own);
+        return own;
+    }
+
+    private static void configure(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Wait for another connection's write to finish instead of failing with SQLITE_BUSY
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+        }
+    }
+
     public void initializeDatabase() {
         try {
             createBooksTable();
@@ -45,6 +75,8 @@ public class DatabaseManager {
             createUserSettingsTable();
             createCustomFontsTable(); // OLD - keep for migration
             createCustomFontFamiliesTable(); // NEW
+            createLibraryFoldersTable();
+            createBookTextTables();
             insertDefaultSettings();
             System.out.println("✓ Database initialized successfully");
         } catch (SQLException e) {
@@ -86,12 +118,87 @@ public class DatabaseManager {
                 total_pages INTEGER,
                 date_added TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                 last_opened TIMESTAMP,
-                is_favorite BOOLEAN DEFAULT 0
+                is_favorite BOOLEAN DEFAULT 0,
+                file_size INTEGER DEFAULT 0,
+                file_mtime INTEGER DEFAULT 0,
+                file_hash TEXT,
+                is_missing BOOLEAN DEFAULT 0
             )
         """;
         try (Statement stmt = connection.createStatement()) {
             stmt.execute(sql);
             System.out.println("✓ Books table created/verified");
+
+            // File state columns used by library folder rescans
+            String[] fileStateColumns = {
+                    "file_size INTEGER DEFAULT 0",
+                    "file_mtime INTEGER DEFAULT 0",
+                    "file_hash TEXT",
+                    "is_missing BOOLEAN DEFAULT 0"
+            };
+            for (String column : fileStateColumns) {
+                try {
+                    stmt.execute("ALTER TABLE books ADD COLUMN " + column);
+                    System.out.println("✓ Added " + column.substring(0, column.indexOf(' ')) + " column");
+                } catch (SQLException e) {
+                    // Column already exists
+                }
+            }
+        }
+    }
+
+    private void createLibraryFoldersTable() throws SQLException {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS library_folders (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                folder_path TEXT UNIQUE NOT NULL,
+                date_added TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+        """;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+            System.out.println("✓ Library folders table created/verified");
+        }
+    }
+
+    /**
+     * Full-text index of book contents. Each row is one EPUB chapter or PDF
+     * page; its rowid is (book id << 20) + chapter/page index, so all rows of
+     * a book form one rowid range. book_text_status records which file
+     * version of each book was indexed.
+     */
+    private void createBookTextTables() throws SQLException {
+        String textTable = """
+            CREATE VIRTUAL TABLE IF NOT EXISTS book_text USING fts5(
+                content,
+                tokenize = 'unicode61 remove_diacritics 2'
+            )
+        """;
+        String statusTable = """
+            CREATE TABLE IF NOT EXISTS book_text_status (
+                book_id INTEGER PRIMARY KEY,
+                file_hash TEXT,
+                section_count INTEGER DEFAULT 0,
+                indexed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                FOREIGN KEY (book_id) REFERENCES books(id) ON DELETE CASCADE
+            )
+        """;
+        // Removing a book removes its text, whichever code path deletes it
+        String deleteTrigger = """
+            CREATE TRIGGER IF NOT EXISTS books_delete_text AFTER DELETE ON books
+            BEGIN
+                DELETE FROM book_text WHERE rowid BETWEEN old.id * 1048576 AND old.id * 1048576 + 1048575;
+                DELETE FROM book_text_status WHERE book_id = old.id;
+            END
+        """;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(textTable);
+            stmt.execute(statusTable);
+            stmt.execute(deleteTrigger);
+            System.out.println("✓ Book text index tables created/verified");
+        } catch (SQLException e) {
+            // SQLite builds without FTS5 still get a working library, just no text search
+            System.err.println("⚠ Full-text index not available: " + e.getMessage());
         }
     }
 
@@ -217,6 +324,20 @@ public class DatabaseManager {
             }
             rs.close();
 
+            rs = metaData.getTables(null, null, "library_folders", null);
+            if (!rs.next()) {
+                System.out.println("→ Creating missing library_folders table...");
+                createLibraryFoldersTable();
+            }
+            rs.close();
+
+            rs = metaData.getTables(null, null, "book_text_status", null);
+            if (!rs.next()) {
+                System.out.println("→ Creating missing book text index tables...");
+                createBookTextTables();
+            }
+            rs.close();
+
             System.out.println("✓ Database schema check complete");
 
         } catch (SQLException e) {
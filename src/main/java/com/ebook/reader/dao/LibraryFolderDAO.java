@@ -0,0 +1,54 @@
+package com.ebook.reader.dao;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LibraryFolderDAO {
+    private final Connection connection;
+
+    public LibraryFolderDAO() {
+        this.connection = DatabaseManager.getInstance().getConnection();
+    }
+
+    /**
+     * Add a watched library folder; adding an existing folder does nothing
+     */
+    public void addFolder(String folderPath) throws SQLException {
+        String sql = "INSERT OR IGNORE INTO library_folders (folder_path, date_added) VALUES (?, CURRENT_TIMESTAMP)";
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, folderPath);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Stop watching a folder. Books imported from it stay in the library.
+     */
+    public void removeFolder(String folderPath) throws SQLException {
+        String sql = "DELETE FROM library_folders WHERE folder_path = ?";
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, folderPath);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Get all watched folders
+     */
+    public List<String> getAllFolders() throws SQLException {
+        List<String> folders = new ArrayList<>();
+        String sql = "SELECT folder_path FROM library_folders ORDER BY folder_path";
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                folders.add(rs.getString("folder_path"));
+            }
+        }
+        return folders;
+    }
+}
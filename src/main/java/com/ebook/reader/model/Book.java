@@ -13,6 +13,10 @@ public class Book {
     private LocalDateTime dateAdded;
     private LocalDateTime lastOpened;
     private boolean isFavorite;
+    private long fileSize;
+    private long fileModified; // file mtime in milliseconds
+    private String fileHash;
+    private boolean isMissing;
 
     // Constructors
     public Book() {}
@@ -105,6 +109,38 @@ public class Book {
         isFavorite = favorite;
     }
 
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public long getFileModified() {
+        return fileModified;
+    }
+
+    public void setFileModified(long fileModified) {
+        this.fileModified = fileModified;
+    }
+
+    public String getFileHash() {
+        return fileHash;
+    }
+
+    public void setFileHash(String fileHash) {
+        this.fileHash = fileHash;
+    }
+
+    public boolean isMissing() {
+        return isMissing;
+    }
+
+    public void setMissing(boolean missing) {
+        isMissing = missing;
+    }
+
     @Override
     public String toString() {
         return "Book{" +
@@ -0,0 +1,189 @@
+package com.ebook.reader.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+/**
+ * On-demand access to the chapters of an opened EPUB.
+ *
+ * Only the spine is resolved when the book is opened; each chapter is read and
+ * processed the first time it is requested. Neighbouring chapters are prefetched
+ * on a background thread and least recently used chapters are evicted once the
+ * cache grows past its memory budget.
+ */
+public class EpubChapterSource implements AutoCloseable {
+
+    // Approximate budget for cached chapter HTML (Java strings are UTF-16)
+    private static final long DEFAULT_CACHE_BUDGET_BYTES = 24L * 1024 * 1024;
+    private static final int PREFETCH_AHEAD = 2;
+    private static final int PREFETCH_BEHIND = 1;
+
+    private final int chapterCount;
+    private final IntFunction<String> chapterLoader;
+    private final Closeable resources;
+    private final long cacheBudgetBytes;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<Integer, String> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, CompletableFuture<String>> pending = new HashMap<>();
+    private final List<Future<?>> prefetchTasks = new ArrayList<>();
+    private long cachedBytes = 0;
+    private volatile boolean closed = false;
+
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "epub-chapter-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public EpubChapterSource(int chapterCount, IntFunction<String> chapterLoader, Closeable resources) {
+        this(chapterCount, chapterLoader, resources, DEFAULT_CACHE_BUDGET_BYTES);
+    }
+
+    public EpubChapterSource(int chapterCount, IntFunction<String> chapterLoader,
+                             Closeable resources, long cacheBudgetBytes) {
+        this.chapterCount = chapterCount;
+        this.chapterLoader = chapterLoader;
+        this.resources = resources;
+        this.cacheBudgetBytes = cacheBudgetBytes;
+    }
+
+    public int getChapterCount() {
+        return chapterCount;
+    }
+
+    /**
+     * Get processed chapter HTML, loading it from the archive on first access
+     */
+    public String getChapter(int index) {
+        if (index < 0 || index >= chapterCount) {
+            throw new IndexOutOfBoundsException("Chapter " + index + " (total: " + chapterCount + ")");
+        }
+
+        CompletableFuture<String> future;
+        boolean owner = false;
+
+        synchronized (lock) {
+            String cached = cache.get(index);
+            if (cached != null) {
+                return cached;
+            }
+
+            future = pending.get(index);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                pending.put(index, future);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            return future.join();
+        }
+
+        String content;
+        try {
+            content = chapterLoader.apply(index);
+        } catch (RuntimeException e) {
+            System.err.println("✗ Error loading chapter " + (index + 1) + ": " + e.getMessage());
+            content = "<html><body><h2>Chapter " + (index + 1) + "</h2><p>Could not load chapter</p></body></html>";
+        }
+
+        synchronized (lock) {
+            pending.remove(index);
+            if (!closed) {
+                putInCache(index, content);
+            }
+        }
+
+        future.complete(content);
+        return content;
+    }
+
+    public boolean isLoaded(int index) {
+        synchronized (lock) {
+            return cache.containsKey(index);
+        }
+    }
+
+    /**
+     * Load the chapters around the given one in the background.
+     * Older prefetch requests that have not started yet are dropped.
+     */
+    public void prefetchAround(int index) {
+        if (closed) return;
+
+        synchronized (lock) {
+            for (Future<?> task : prefetchTasks) {
+                task.cancel(false);
+            }
+            prefetchTasks.clear();
+
+            List<Integer> targets = new ArrayList<>();
+            for (int i = 1; i <= PREFETCH_AHEAD; i++) {
+                targets.add(index + i);
+            }
+            for (int i = 1; i <= PREFETCH_BEHIND; i++) {
+                targets.add(index - i);
+            }
+
+            for (int target : targets) {
+                if (target < 0 || target >= chapterCount || cache.containsKey(target)) {
+                    continue;
+                }
+                prefetchTasks.add(prefetchExecutor.submit(() -> {
+                    if (!closed) {
+                        getChapter(target);
+                    }
+                }));
+            }
+        }
+    }
+
+    private void putInCache(int index, String content) {
+        String previous = cache.put(index, content);
+        if (previous != null) {
+            cachedBytes -= sizeOf(previous);
+        }
+        cachedBytes += sizeOf(content);
+
+        // Evict least recently used chapters, but always keep the newest one
+        Iterator<Map.Entry<Integer, String>> it = cache.entrySet().iterator();
+        while (cachedBytes > cacheBudgetBytes && cache.size() > 1 && it.hasNext()) {
+            Map.Entry<Integer, String> eldest = it.next();
+            if (eldest.getKey() == index) {
+                continue;
+            }
+            cachedBytes -= sizeOf(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    private static long sizeOf(String content) {
+        return (long) content.length() * 2;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        prefetchExecutor.shutdownNow();
+        synchronized (lock) {
+            cache.clear();
+            cachedBytes = 0;
+            prefetchTasks.clear();
+        }
+
+        if (resources != null) {
+            try {
+                resources.close();
+            } catch (IOException e) {
+                System.err.println("✗ Error closing EPUB: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.ebook.reader.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.ZipFile;
+
+/**
+ * Immutable model of an EPUB package: metadata, manifest, spine, table of
+ * contents and the path index of the archive.
+ *
+ * Built once per file and cached by path and modification time, so metadata
+ * extraction, chapter loading, the TOC and the chapter link map all share a
+ * single parse of container.xml, the OPF and the NCX.
+ */
+public final class EpubPackage {
+
+    private static final int MAX_CACHED_PACKAGES = 16;
+
+    private static final Map<String, EpubPackage> CACHE =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, EpubPackage> eldest) {
+                    return size() > MAX_CACHED_PACKAGES;
+                }
+            };
+
+    /**
+     * A manifest item. entryName is the resolved archive path, or null when
+     * the item is missing from the archive.
+     */
+    public static class ManifestItem {
+        public final String id;
+        public final String href;
+        public final String mediaType;
+        public final String properties;
+        public final String entryName;
+
+        public ManifestItem(String id, String href, String mediaType, String properties, String entryName) {
+            this.id = id;
+            this.href = href;
+            this.mediaType = mediaType;
+            this.properties = properties;
+            this.entryName = entryName;
+        }
+
+        public boolean isImage() {
+            return mediaType != null && mediaType.startsWith("image/");
+        }
+
+        public boolean hasProperty(String property) {
+            if (properties == null) return false;
+            for (String value : properties.trim().split("\\s+")) {
+                if (value.equals(property)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A table of contents entry in document order; depth 0 is the top level
+     */
+    public static class NavPoint {
+        public final String title;
+        public final String entryName;
+        public final String fragment;
+        public final int depth;
+
+        public NavPoint(String title, String entryName, String fragment, int depth) {
+            this.title = title;
+            this.entryName = entryName;
+            this.fragment = fragment;
+            this.depth = depth;
+        }
+    }
+
+    private final String filePath;
+    private final long lastModified;
+    private final long fileSize;
+
+    private final String opfPath;
+    private final String opfFolder;
+    private final String title;
+    private final String creator;
+    private final String coverId;
+    private final Map<String, ManifestItem> manifest;
+    private final List<ManifestItem> spine;
+    private final Map<String, Integer> spineIndexByEntry;
+    private final List<NavPoint> toc;
+    private final EpubPathIndex pathIndex;
+
+    EpubPackage(File file, String opfPath, String title, String creator, String coverId,
+                Map<String, ManifestItem> manifest, List<ManifestItem> spine,
+                List<NavPoint> toc, EpubPathIndex pathIndex) {
+        this.filePath = file.getAbsolutePath();
+        this.lastModified = file.lastModified();
+        this.fileSize = file.length();
+        this.opfPath = opfPath;
+        this.opfFolder = parentFolder(opfPath);
+        this.title = title;
+        this.creator = creator;
+        this.coverId = coverId;
+        this.manifest = Collections.unmodifiableMap(new LinkedHashMap<>(manifest));
+        this.spine = List.copyOf(spine);
+        this.toc = List.copyOf(toc);
+        this.pathIndex = pathIndex;
+
+        Map<String, Integer> byEntry = new HashMap<>();
+        for (int i = 0; i < this.spine.size(); i++) {
+            byEntry.putIfAbsent(this.spine.get(i).entryName, i);
+        }
+        this.spineIndexByEntry = Collections.unmodifiableMap(byEntry);
+    }
+
+    /**
+     * Get the package for an EPUB file, parsing it only if it is not cached
+     * or the file changed since it was parsed
+     */
+    public static EpubPackage load(String filePath) throws IOException {
+        return load(filePath, null);
+    }
+
+    /**
+     * Same as {@link #load(String)}, reusing an archive the caller already
+     * opened instead of opening it again on a cache miss
+     */
+    public static EpubPackage load(String filePath, ZipFile openZipFile) throws IOException {
+        File file = new File(filePath);
+        String key = file.getAbsolutePath();
+
+        synchronized (CACHE) {
+            EpubPackage cached = CACHE.get(key);
+            if (cached != null && cached.isCurrent(file)) {
+                return cached;
+            }
+        }
+
+        EpubPackage parsed;
+        if (openZipFile != null) {
+            parsed = EpubPackageParser.parse(file, openZipFile);
+        } else {
+            try (ZipFile zipFile = new ZipFile(file)) {
+                parsed = EpubPackageParser.parse(file, zipFile);
+            }
+        }
+
+        synchronized (CACHE) {
+            CACHE.put(key, parsed);
+        }
+        return parsed;
+    }
+
+    private boolean isCurrent(File file) {
+        return file.lastModified() == lastModified && file.length() == fileSize;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getOpfPath() {
+        return opfPath;
+    }
+
+    public String getOpfFolder() {
+        return opfFolder;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getCreator() {
+        return creator;
+    }
+
+    public Map<String, ManifestItem> getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Spine items that exist in the archive, in reading order. The position in
+     * this list is the chapter index used everywhere else.
+     */
+    public List<ManifestItem> getSpine() {
+        return spine;
+    }
+
+    public int getChapterCount() {
+        return spine.size();
+    }
+
+    /**
+     * Chapter index of an archive entry, or -1 if the entry is not in the spine
+     */
+    public int getSpineIndex(String entryName) {
+        if (entryName == null) return -1;
+        Integer index = spineIndexByEntry.get(entryName);
+        return index != null ? index : -1;
+    }
+
+    public List<NavPoint> getToc() {
+        return toc;
+    }
+
+    public EpubPathIndex getPathIndex() {
+        return pathIndex;
+    }
+
+    /**
+     * Cover image candidates, best first: the item named by the cover meta,
+     * the EPUB 3 cover-image item, then images whose id mentions "cover"
+     */
+    public List<ManifestItem> getCoverCandidates() {
+        List<ManifestItem> candidates = new ArrayList<>();
+
+        if (coverId != null) {
+            ManifestItem item = manifest.get(coverId);
+            if (item != null && item.isImage()) {
+                candidates.add(item);
+            }
+        }
+
+        for (ManifestItem item : manifest.values()) {
+            if (item.isImage() && item.hasProperty("cover-image") && !candidates.contains(item)) {
+                candidates.add(item);
+            }
+        }
+
+        for (ManifestItem item : manifest.values()) {
+            if (item.isImage() && item.id.toLowerCase(Locale.ROOT).contains("cover") && !candidates.contains(item)) {
+                candidates.add(item);
+            }
+        }
+
+        return candidates;
+    }
+
+    static String parentFolder(String path) {
+        int lastSlash = path.lastIndexOf('/');
+        return lastSlash > 0 ? path.substring(0, lastSlash + 1) : "";
+    }
+}
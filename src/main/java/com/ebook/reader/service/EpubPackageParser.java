@@ -0,0 +1,459 @@
+package com.ebook.reader.service;
+
+import com.ebook.reader.service.EpubPackage.ManifestItem;
+import com.ebook.reader.service.EpubPackage.NavPoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads container.xml, the OPF and the NCX (or EPUB 3 nav document) of an
+ * archive into an {@link EpubPackage}.
+ *
+ * Every document is read with a single forward StAX pass and matched by local
+ * name, so namespace prefixes don't matter and memory stays bounded by the
+ * model being built rather than by a full DOM tree.
+ */
+class EpubPackageParser {
+
+    private static final String DC_NAMESPACE = "http://purl.org/dc/elements/1.1/";
+    private static final String OPS_NAMESPACE = "http://www.idpf.org/2007/ops";
+    private static final String NCX_MEDIA_TYPE = "application/x-dtbncx+xml";
+
+    private static final XMLInputFactory XML_FACTORY = createFactory();
+
+    private EpubPackageParser() {}
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        // Report HTML entities such as &nbsp; in nav documents instead of failing on them
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+        return factory;
+    }
+
+    /**
+     * Raw OPF content collected in one pass, before hrefs are resolved
+     */
+    private static class OpfContent {
+        String title;
+        String creator;
+        String coverId;
+        String tocId;
+        final List<String[]> items = new ArrayList<>(); // id, href, media-type, properties
+        final List<String> spineIdrefs = new ArrayList<>();
+    }
+
+    static EpubPackage parse(File file, ZipFile zipFile) throws IOException {
+        ZipEntry opfEntry = findOpfFile(zipFile);
+        if (opfEntry == null) {
+            throw new IOException("OPF file not found in EPUB");
+        }
+
+        OpfContent opf;
+        try {
+            opf = readOpf(zipFile, opfEntry);
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not parse OPF: " + e.getMessage(), e);
+        }
+
+        String opfPath = opfEntry.getName();
+        String opfFolder = EpubPackage.parentFolder(opfPath);
+
+        List<String> hrefs = new ArrayList<>(opf.items.size());
+        for (String[] item : opf.items) {
+            hrefs.add(item[1]);
+        }
+        EpubPathIndex pathIndex = EpubPathIndex.build(zipFile, opfFolder, hrefs);
+
+        Map<String, ManifestItem> manifest = new LinkedHashMap<>();
+        for (String[] item : opf.items) {
+            manifest.put(item[0], new ManifestItem(item[0], item[1], item[2], item[3],
+                    pathIndex.find(opfFolder, item[1], opfFolder)));
+        }
+
+        // Spine, keeping only chapters that exist in the archive
+        List<ManifestItem> spine = new ArrayList<>();
+        for (String idref : opf.spineIdrefs) {
+            ManifestItem item = manifest.get(idref);
+            if (item != null && item.entryName != null) {
+                spine.add(item);
+            } else {
+                System.err.println("⚠ Skipping missing spine item: " + idref);
+            }
+        }
+
+        List<NavPoint> toc = readToc(zipFile, opf.tocId, manifest, pathIndex, opfFolder);
+
+        return new EpubPackage(file, opfPath, opf.title, opf.creator, opf.coverId, manifest, spine, toc, pathIndex);
+    }
+
+    // ========== container.xml and OPF ==========
+
+    private static ZipEntry findOpfFile(ZipFile zipFile) {
+        ZipEntry containerEntry = zipFile.getEntry("META-INF/container.xml");
+        if (containerEntry != null) {
+            try (InputStream is = zipFile.getInputStream(containerEntry)) {
+                XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(is);
+                try {
+                    while (reader.hasNext()) {
+                        if (reader.next() == XMLStreamConstants.START_ELEMENT
+                                && reader.getLocalName().equals("rootfile")) {
+                            ZipEntry opfEntry = zipFile.getEntry(attribute(reader, "full-path"));
+                            if (opfEntry != null) {
+                                return opfEntry;
+                            }
+                            break;
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (Exception e) {
+                System.err.println("✗ Error reading container.xml: " + e.getMessage());
+            }
+        }
+
+        return findFileInZip(zipFile, ".opf");
+    }
+
+    private static OpfContent readOpf(ZipFile zipFile, ZipEntry opfEntry) throws IOException, XMLStreamException {
+        OpfContent opf = new OpfContent();
+
+        try (InputStream is = zipFile.getInputStream(opfEntry)) {
+            XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(is);
+            try {
+                boolean inMetadata = false;
+
+                while (reader.hasNext()) {
+                    int event = reader.next();
+
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (reader.getLocalName().equals("metadata")) inMetadata = false;
+                        continue;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) continue;
+
+                    switch (reader.getLocalName()) {
+                        case "metadata" -> inMetadata = true;
+                        case "title" -> {
+                            if (inMetadata && opf.title == null && isDublinCore(reader)) {
+                                opf.title = nonEmpty(elementText(reader));
+                            }
+                        }
+                        case "creator" -> {
+                            if (inMetadata && opf.creator == null && isDublinCore(reader)) {
+                                opf.creator = nonEmpty(elementText(reader));
+                            }
+                        }
+                        case "meta" -> {
+                            if (opf.coverId == null && "cover".equals(attribute(reader, "name"))) {
+                                opf.coverId = nonEmpty(attribute(reader, "content"));
+                            }
+                        }
+                        case "item" -> {
+                            String id = attribute(reader, "id");
+                            String href = attribute(reader, "href");
+                            if (!id.isEmpty() && !href.isEmpty()) {
+                                opf.items.add(new String[] {
+                                        id, href, attribute(reader, "media-type"), attribute(reader, "properties")
+                                });
+                            }
+                        }
+                        case "spine" -> opf.tocId = nonEmpty(attribute(reader, "toc"));
+                        case "itemref" -> opf.spineIdrefs.add(attribute(reader, "idref"));
+                        default -> { }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        return opf;
+    }
+
+    private static boolean isDublinCore(XMLStreamReader reader) {
+        String namespace = reader.getNamespaceURI();
+        return namespace == null || namespace.isEmpty() || namespace.equals(DC_NAMESPACE)
+                || "dc".equals(reader.getPrefix());
+    }
+
+    // ========== Table of contents ==========
+
+    private static List<NavPoint> readToc(ZipFile zipFile, String tocId, Map<String, ManifestItem> manifest,
+                                          EpubPathIndex pathIndex, String opfFolder) {
+        List<NavPoint> toc = new ArrayList<>();
+
+        ZipEntry ncxEntry = findNcxEntry(zipFile, tocId, manifest);
+        if (ncxEntry != null) {
+            try {
+                readNcx(zipFile, ncxEntry, pathIndex, opfFolder, toc);
+            } catch (Exception e) {
+                System.err.println("✗ Error reading NCX: " + e.getMessage());
+                toc.clear();
+            }
+        }
+
+        if (toc.isEmpty()) {
+            for (ManifestItem item : manifest.values()) {
+                if (item.hasProperty("nav") && item.entryName != null) {
+                    try {
+                        readNavDocument(zipFile, zipFile.getEntry(item.entryName), pathIndex, opfFolder, toc);
+                    } catch (Exception e) {
+                        System.err.println("✗ Error reading nav document: " + e.getMessage());
+                        toc.clear();
+                    }
+                    break;
+                }
+            }
+        }
+
+        return toc;
+    }
+
+    private static ZipEntry findNcxEntry(ZipFile zipFile, String tocId, Map<String, ManifestItem> manifest) {
+        ManifestItem tocItem = tocId != null ? manifest.get(tocId) : null;
+        if (tocItem != null && tocItem.entryName != null) {
+            return zipFile.getEntry(tocItem.entryName);
+        }
+
+        for (ManifestItem item : manifest.values()) {
+            if (NCX_MEDIA_TYPE.equals(item.mediaType) && item.entryName != null) {
+                return zipFile.getEntry(item.entryName);
+            }
+        }
+
+        ZipEntry entry = findFileInZip(zipFile, "toc.ncx");
+        return entry != null ? entry : findFileInZip(zipFile, ".ncx");
+    }
+
+    /**
+     * A navPoint or nav list item whose label and target are still being read.
+     * It is emitted when its first child entry starts or when it ends, which
+     * keeps the flattened list in document order.
+     */
+    private static class PendingEntry {
+        final StringBuilder title = new StringBuilder();
+        String src = "";
+        boolean emitted = false;
+    }
+
+    private static void readNcx(ZipFile zipFile, ZipEntry ncxEntry, EpubPathIndex pathIndex,
+                                String opfFolder, List<NavPoint> toc) throws IOException, XMLStreamException {
+        String ncxFolder = EpubPackage.parentFolder(ncxEntry.getName());
+        Deque<PendingEntry> open = new ArrayDeque<>();
+
+        try (InputStream is = zipFile.getInputStream(ncxEntry)) {
+            XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(is);
+            try {
+                boolean inNavMap = false;
+                boolean inLabelText = false;
+
+                while (reader.hasNext()) {
+                    int event = reader.next();
+
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if (name.equals("navMap")) {
+                            inNavMap = true;
+                        } else if (!inNavMap) {
+                            continue;
+                        } else if (name.equals("navPoint")) {
+                            emitPending(open, ncxFolder, opfFolder, pathIndex, toc);
+                            open.push(new PendingEntry());
+                        } else if (name.equals("text") && !open.isEmpty() && open.peek().title.length() == 0) {
+                            inLabelText = true;
+                        } else if (name.equals("content") && !open.isEmpty()) {
+                            open.peek().src = attribute(reader, "src");
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if (name.equals("navMap")) {
+                            break;
+                        } else if (name.equals("text")) {
+                            inLabelText = false;
+                        } else if (name.equals("navPoint") && !open.isEmpty()) {
+                            emitPending(open, ncxFolder, opfFolder, pathIndex, toc);
+                            open.pop();
+                        }
+                    } else if (inLabelText && isText(event)) {
+                        open.peek().title.append(reader.getText());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private static void readNavDocument(ZipFile zipFile, ZipEntry navEntry, EpubPathIndex pathIndex,
+                                        String opfFolder, List<NavPoint> toc) throws IOException, XMLStreamException {
+        String navFolder = EpubPackage.parentFolder(navEntry.getName());
+
+        // Entries of the first nav, kept in case no nav is marked epub:type="toc"
+        List<NavPoint> firstNav = null;
+        List<NavPoint> current = null;
+        boolean currentIsToc = false;
+
+        Deque<PendingEntry> open = new ArrayDeque<>();
+        int linkDepth = 0; // > 0 while inside the a/span label of the innermost item
+
+        try (InputStream is = zipFile.getInputStream(navEntry)) {
+            XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(is);
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if (name.equals("nav") && current == null) {
+                            current = new ArrayList<>();
+                            currentIsToc = isTocNav(reader);
+                            open.clear();
+                        } else if (current == null) {
+                            continue;
+                        } else if (linkDepth > 0) {
+                            linkDepth++;
+                        } else if (name.equals("li")) {
+                            emitPending(open, navFolder, opfFolder, pathIndex, current);
+                            open.push(new PendingEntry());
+                        } else if ((name.equals("a") || name.equals("span"))
+                                && !open.isEmpty() && open.peek().title.length() == 0) {
+                            open.peek().src = attribute(reader, "href");
+                            linkDepth = 1;
+                        } else if (name.equals("ol")) {
+                            emitPending(open, navFolder, opfFolder, pathIndex, current);
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (current == null) continue;
+
+                        String name = reader.getLocalName();
+                        if (linkDepth > 0) {
+                            linkDepth--;
+                        } else if (name.equals("li") && !open.isEmpty()) {
+                            emitPending(open, navFolder, opfFolder, pathIndex, current);
+                            open.pop();
+                        } else if (name.equals("nav")) {
+                            if (currentIsToc) {
+                                toc.addAll(current);
+                                return;
+                            }
+                            if (firstNav == null) firstNav = current;
+                            current = null;
+                        }
+                    } else if (linkDepth > 0 && isText(event)) {
+                        open.peek().title.append(reader.getText());
+                    } else if (linkDepth > 0 && event == XMLStreamConstants.ENTITY_REFERENCE) {
+                        open.peek().title.append(' ');
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        if (firstNav != null) {
+            toc.addAll(firstNav);
+        }
+    }
+
+    private static boolean isTocNav(XMLStreamReader reader) {
+        String type = reader.getAttributeValue(OPS_NAMESPACE, "type");
+        if (type == null) type = attribute(reader, "type");
+        for (String value : type.trim().split("\\s+")) {
+            if (value.equals("toc")) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Emit the innermost open entry if it has not been emitted yet; its depth
+     * is the number of enclosing entries
+     */
+    private static void emitPending(Deque<PendingEntry> open, String docFolder, String opfFolder,
+                                    EpubPathIndex pathIndex, List<NavPoint> toc) {
+        PendingEntry entry = open.peek();
+        if (entry == null || entry.emitted) return;
+        entry.emitted = true;
+
+        String title = entry.title.toString().replaceAll("\\s+", " ").trim();
+        if (title.isEmpty()) {
+            if (entry.src.isEmpty()) return; // grouping item without label or target
+            title = "Chapter " + (toc.size() + 1);
+        }
+
+        String entryName = null;
+        String fragment = null;
+        if (!entry.src.isEmpty()) {
+            entryName = pathIndex.find(docFolder, entry.src, opfFolder);
+            int hash = entry.src.indexOf('#');
+            if (hash >= 0) fragment = entry.src.substring(hash + 1);
+        }
+
+        toc.add(new NavPoint(title, entryName, fragment, open.size() - 1));
+    }
+
+    // ========== Helpers ==========
+
+    private static ZipEntry findFileInZip(ZipFile zipFile, String suffix) {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().endsWith(suffix)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Attribute value by local name regardless of prefix, or "" if absent
+     */
+    private static String attribute(XMLStreamReader reader, String localName) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (reader.getAttributeLocalName(i).equals(localName)) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Text content of the current element, skipping nested markup
+     */
+    private static String elementText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (isText(event)) {
+                text.append(reader.getText());
+            }
+        }
+        return text.toString().trim();
+    }
+
+    private static boolean isText(int event) {
+        return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                || event == XMLStreamConstants.SPACE;
+    }
+
+    private static String nonEmpty(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
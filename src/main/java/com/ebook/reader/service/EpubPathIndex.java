@@ -0,0 +1,158 @@
+package com.ebook.reader.service;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Case-insensitive index of the files in an EPUB archive.
+ *
+ * Built once from the zip entries and the OPF manifest, so every resource
+ * reference in a chapter resolves with a few hash lookups instead of probing
+ * the archive or the filesystem.
+ */
+public class EpubPathIndex {
+
+    // Folders some broken EPUBs assume references are relative to
+    private static final String[] FALLBACK_FOLDERS = {"OEBPS/", "EPUB/", "OPS/", "images/", "img/"};
+
+    private final Set<String> entryNames = new HashSet<>();
+    private final Map<String, String> byLowerPath = new HashMap<>();
+    private final Map<String, String> byLowerFileName = new HashMap<>();
+
+    private EpubPathIndex() {}
+
+    /**
+     * Index all file entries of the archive. Manifest items win file name
+     * collisions so the fallback lookup prefers files the book declares.
+     */
+    public static EpubPathIndex build(ZipFile zipFile, String opfFolder, Collection<String> manifestHrefs) {
+        EpubPathIndex index = new EpubPathIndex();
+
+        if (manifestHrefs != null) {
+            for (String href : manifestHrefs) {
+                String path = resolve(opfFolder, decode(stripFragment(href)));
+                ZipEntry entry = zipFile.getEntry(path);
+                if (entry != null && !entry.isDirectory()) {
+                    index.add(entry.getName());
+                }
+            }
+        }
+
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory()) {
+                index.add(entry.getName());
+            }
+        }
+
+        return index;
+    }
+
+    private void add(String entryName) {
+        if (!entryNames.add(entryName)) {
+            return;
+        }
+        byLowerPath.putIfAbsent(entryName.toLowerCase(Locale.ROOT), entryName);
+        byLowerFileName.putIfAbsent(fileName(entryName).toLowerCase(Locale.ROOT), entryName);
+    }
+
+    public int size() {
+        return entryNames.size();
+    }
+
+    /**
+     * Resolve a reference found in a document inside baseFolder to an entry
+     * name, or null if the archive has no matching file
+     */
+    public String find(String baseFolder, String reference, String opfFolder) {
+        if (reference == null) return null;
+
+        if (hasScheme(reference)) return null; // external or already resolved URL
+
+        String cleanRef = decode(stripFragment(reference));
+        if (cleanRef.isEmpty()) return null;
+
+        String found = lookup(resolve(baseFolder, cleanRef));
+        if (found != null) return found;
+
+        found = lookup(resolve("", cleanRef));
+        if (found != null) return found;
+
+        found = lookup(resolve(opfFolder, cleanRef));
+        if (found != null) return found;
+
+        for (String folder : FALLBACK_FOLDERS) {
+            found = lookup(resolve(folder, cleanRef));
+            if (found != null) return found;
+        }
+
+        // Last resort: match on file name alone
+        return byLowerFileName.get(fileName(cleanRef).toLowerCase(Locale.ROOT));
+    }
+
+    private String lookup(String path) {
+        if (entryNames.contains(path)) {
+            return path;
+        }
+        return byLowerPath.get(path.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Resolve a relative reference against a folder, collapsing "." and ".." segments
+     */
+    static String resolve(String folder, String reference) {
+        String combined = reference.startsWith("/") ? reference.substring(1) : folder + reference;
+
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : combined.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) continue;
+            if (segment.equals("..")) {
+                segments.pollLast();
+            } else {
+                segments.addLast(segment);
+            }
+        }
+
+        return String.join("/", segments);
+    }
+
+    private static boolean hasScheme(String reference) {
+        int colon = reference.indexOf(':');
+        if (colon <= 0) return false;
+        for (int i = 0; i < colon; i++) {
+            char c = reference.charAt(i);
+            boolean valid = Character.isLetter(c) || (i > 0 && (Character.isDigit(c) || c == '+' || c == '-' || c == '.'));
+            if (!valid) return false;
+        }
+        return true;
+    }
+
+    private static String stripFragment(String reference) {
+        int cut = reference.length();
+        int hash = reference.indexOf('#');
+        if (hash >= 0) cut = hash;
+        int query = reference.indexOf('?');
+        if (query >= 0 && query < cut) cut = query;
+        return reference.substring(0, cut).trim();
+    }
+
+    private static String decode(String reference) {
+        if (reference.indexOf('%') < 0) {
+            return reference;
+        }
+        try {
+            return URLDecoder.decode(reference.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return reference;
+        }
+    }
+
+    private static String fileName(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(slash + 1) : path;
+    }
+}
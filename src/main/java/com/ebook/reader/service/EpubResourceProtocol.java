@@ -0,0 +1,155 @@
+package com.ebook.reader.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.*;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * epub:// URL scheme that streams images, stylesheets and fonts straight out of
+ * an opened EPUB archive, so the WebView can load book resources without the
+ * archive ever being extracted to disk.
+ *
+ * URLs have the form epub://&lt;bookKey&gt;/&lt;zip entry path&gt;
+ */
+public final class EpubResourceProtocol {
+
+    public static final String SCHEME = "epub";
+
+    private static final Map<String, ZipFile> OPEN_BOOKS = new ConcurrentHashMap<>();
+    private static boolean installed = false;
+
+    private EpubResourceProtocol() {}
+
+    /**
+     * Register the epub:// handler with the JVM. Safe to call more than once.
+     */
+    public static synchronized void install() {
+        if (installed) return;
+
+        try {
+            URL.setURLStreamHandlerFactory(protocol ->
+                    SCHEME.equalsIgnoreCase(protocol) ? new Handler() : null);
+            installed = true;
+            System.out.println("✓ Registered " + SCHEME + ":// resource protocol");
+        } catch (Error e) {
+            // Another factory is already installed for this JVM
+            System.err.println("✗ Could not register " + SCHEME + ":// protocol: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Make the entries of an open archive reachable under the given key
+     */
+    public static void register(String bookKey, ZipFile zipFile) {
+        OPEN_BOOKS.put(bookKey, zipFile);
+    }
+
+    public static void unregister(String bookKey) {
+        OPEN_BOOKS.remove(bookKey);
+    }
+
+    /**
+     * Build the URL for a zip entry of a registered book
+     */
+    public static String toUrl(String bookKey, String entryName) {
+        try {
+            return new URI(SCHEME, bookKey, "/" + entryName, null).toASCIIString();
+        } catch (URISyntaxException e) {
+            return SCHEME + "://" + bookKey + "/" + entryName;
+        }
+    }
+
+    static String guessContentType(String entryName) {
+        String lower = entryName.toLowerCase(Locale.ROOT);
+        int dot = lower.lastIndexOf('.');
+        String ext = dot >= 0 ? lower.substring(dot + 1) : "";
+
+        return switch (ext) {
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "svg" -> "image/svg+xml";
+            case "webp" -> "image/webp";
+            case "bmp" -> "image/bmp";
+            case "css" -> "text/css";
+            case "xhtml", "xht" -> "application/xhtml+xml";
+            case "html", "htm" -> "text/html";
+            case "ttf" -> "font/ttf";
+            case "otf" -> "font/otf";
+            case "woff" -> "font/woff";
+            case "woff2" -> "font/woff2";
+            case "js" -> "text/javascript";
+            default -> "application/octet-stream";
+        };
+    }
+
+    private static class Handler extends URLStreamHandler {
+        @Override
+        protected URLConnection openConnection(URL url) {
+            return new EpubConnection(url);
+        }
+    }
+
+    private static class EpubConnection extends URLConnection {
+        private ZipFile zipFile;
+        private ZipEntry entry;
+
+        EpubConnection(URL url) {
+            super(url);
+        }
+
+        @Override
+        public void connect() throws IOException {
+            if (connected) return;
+
+            zipFile = OPEN_BOOKS.get(url.getHost());
+            if (zipFile == null) {
+                throw new FileNotFoundException("Book is not open: " + url);
+            }
+
+            String entryName;
+            try {
+                entryName = url.toURI().getPath();
+            } catch (URISyntaxException e) {
+                entryName = url.getPath();
+            }
+            while (entryName.startsWith("/")) {
+                entryName = entryName.substring(1);
+            }
+
+            entry = zipFile.getEntry(entryName);
+            if (entry == null || entry.isDirectory()) {
+                throw new FileNotFoundException("Entry not found in EPUB: " + entryName);
+            }
+
+            connected = true;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            connect();
+            return zipFile.getInputStream(entry);
+        }
+
+        @Override
+        public String getContentType() {
+            return guessContentType(url.getPath());
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            try {
+                connect();
+                return entry.getSize();
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+    }
+}
@@ -2,6 +2,11 @@ package com.ebook.reader.service;
 
 import com.ebook.reader.model.Book;
 import com.ebook.reader.controller.ReaderController.TocItem;
+import com.ebook.reader.util.CoverThumbnails;
+import com.ebook.reader.util.DiskCache;
+import com.ebook.reader.util.FileFingerprint;
+import com.ebook.reader.util.HtmlResourceRewriter;
+import com.ebook.reader.util.HtmlTextExtractor;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -9,66 +14,47 @@ import java.nio.file.*;
 import java.util.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-import javax.xml.parsers.*;
-import org.w3c.dom.*;
 
 public class EpubService {
 
-    private String currentTempDir = null;
+    // Processed chapter HTML, shared across sessions and keyed by book fingerprint
+    private static final DiskCache CHAPTER_CACHE = new DiskCache("epub", 512L * 1024 * 1024);
+
+    // Bump when chapter processing changes so stale cached HTML is ignored
+    private static final int CHAPTER_CACHE_VERSION = 4;
 
     /**
      * Get chapter-to-filename mapping for navigation
      */
-    public Map<String, Integer> buildChapterFileMap(String filePath, List<String> chapters) {
+    public Map<String, Integer> buildChapterFileMap(String filePath) {
         Map<String, Integer> fileMap = new HashMap<>();
-        ZipFile zipFile = null;
 
         try {
-            zipFile = new ZipFile(new File(filePath));
-            ZipEntry opfEntry = findOpfFile(zipFile);
-
-            if (opfEntry != null) {
-                Document opfDoc = parseXmlEntry(zipFile, opfEntry);
-                Map<String, String> manifest = buildManifestWithNamespace(opfDoc);
-                String opfFolder = getParentFolder(opfEntry.getName());
-
-                NodeList spineItems = opfDoc.getElementsByTagName("itemref");
-                if (spineItems.getLength() == 0) {
-                    spineItems = opfDoc.getElementsByTagNameNS("*", "itemref");
+            EpubPackage epub = EpubPackage.load(filePath);
+            String opfFolder = epub.getOpfFolder();
+            List<EpubPackage.ManifestItem> spine = epub.getSpine();
+
+            for (int i = 0; i < spine.size(); i++) {
+                String href = spine.get(i).href;
+                String fullPath = normalizePath(opfFolder, href);
+                fileMap.put(fullPath, i);
+                fileMap.put(spine.get(i).entryName, i);
+                fileMap.put(href, i);
+
+                String filename = href.contains("/") ?
+                        href.substring(href.lastIndexOf("/") + 1) : href;
+                fileMap.put(filename, i);
+
+                if (filename.contains(".")) {
+                    String nameOnly = filename.substring(0, filename.lastIndexOf("."));
+                    fileMap.put(nameOnly, i);
                 }
 
-                for (int i = 0; i < spineItems.getLength(); i++) {
-                    Element itemref = (Element) spineItems.item(i);
-                    String idref = itemref.getAttribute("idref");
-
-                    if (idref != null && !idref.isEmpty()) {
-                        String href = manifest.get(idref);
-                        if (href != null) {
-                            String fullPath = normalizePath(opfFolder, href);
-                            fileMap.put(fullPath, i);
-                            fileMap.put(href, i);
-
-                            String filename = href.contains("/") ?
-                                    href.substring(href.lastIndexOf("/") + 1) : href;
-                            fileMap.put(filename, i);
-
-                            if (filename.contains(".")) {
-                                String nameOnly = filename.substring(0, filename.lastIndexOf("."));
-                                fileMap.put(nameOnly, i);
-                            }
-
-                            fileMap.put(href + "#", i);
-                            fileMap.put(filename + "#", i);
-                        }
-                    }
-                }
+                fileMap.put(href + "#", i);
+                fileMap.put(filename + "#", i);
             }
         } catch (Exception e) {
             System.err.println("✗ Error building chapter file map: " + e.getMessage());
-        } finally {
-            closeZipFile(zipFile);
         }
 
         return fileMap;
@@ -82,37 +68,26 @@ public class EpubService {
         ZipFile zipFile = null;
         try {
             zipFile = new ZipFile(new File(filePath));
+            EpubPackage epub = EpubPackage.load(filePath, zipFile);
 
-            ZipEntry opfEntry = findOpfFile(zipFile);
-            if (opfEntry != null) {
-                Document opfDoc = parseXmlEntry(zipFile, opfEntry);
-
-                String title = getMetadataValueWithNamespace(opfDoc, "title");
-                if (title == null || title.trim().isEmpty()) {
-                    title = new File(filePath).getName().replaceFirst("[.][^.]+$", "");
-                }
-                book.setTitle(title);
+            String title = epub.getTitle();
+            if (title == null || title.trim().isEmpty()) {
+                title = new File(filePath).getName().replaceFirst("[.][^.]+$", "");
+            }
+            book.setTitle(title);
 
-                String author = getMetadataValueWithNamespace(opfDoc, "creator");
-                if (author == null || author.trim().isEmpty()) {
-                    author = "Unknown Author";
-                }
-                book.setAuthor(author);
+            String author = epub.getCreator();
+            if (author == null || author.trim().isEmpty()) {
+                author = "Unknown Author";
+            }
+            book.setAuthor(author);
 
-                NodeList spineItems = opfDoc.getElementsByTagName("itemref");
-                if (spineItems.getLength() == 0) {
-                    spineItems = opfDoc.getElementsByTagNameNS("*", "itemref");
-                }
-                book.setTotalPages(spineItems.getLength());
+            book.setTotalPages(epub.getChapterCount());
 
-                String coverPath = extractCover(zipFile, opfDoc, book.getTitle());
-                book.setCoverPath(coverPath);
+            String coverPath = extractCover(zipFile, epub, book.getTitle(), filePath);
+            book.setCoverPath(coverPath);
 
-                System.out.println("✓ EPUB metadata: " + book.getTitle() + " by " + book.getAuthor());
-            } else {
-                System.err.println("✗ Could not find OPF file in EPUB");
-                setFallbackMetadata(book, filePath);
-            }
+            System.out.println("✓ EPUB metadata: " + book.getTitle() + " by " + book.getAuthor());
 
         } catch (Exception e) {
             System.err.println("✗ Error extracting EPUB metadata: " + e.getMessage());
@@ -134,453 +109,196 @@ public class EpubService {
     }
 
     /**
-     * CALIBRE-STYLE: Extract EPUB to temp directory for better image handling
+     * Plain text of every spine chapter, in reading order, for search.
+     * Chapters that can't be read come back as empty text.
      */
-    private String extractEpubToTemp(String epubPath) {
-        try {
-            // Create unique temp directory for this EPUB
-            String tempBase = System.getProperty("java.io.tmpdir");
-            String epubName = new File(epubPath).getName().replaceAll("[^a-zA-Z0-9.-]", "_");
-            String tempDir = tempBase + File.separator + "ebook-reader-" + epubName + "-" + System.currentTimeMillis();
-
-            File tempDirFile = new File(tempDir);
-            if (!tempDirFile.exists()) {
-                tempDirFile.mkdirs();
-            }
-
-            System.out.println("→ Extracting EPUB to: " + tempDir);
-
-            // Extract all files
-            ZipFile zipFile = new ZipFile(new File(epubPath));
-            Enumeration<? extends ZipEntry> entries = zipFile.entries();
-            int fileCount = 0;
-
-            while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
-                File entryFile = new File(tempDir, entry.getName());
-
-                if (entry.isDirectory()) {
-                    entryFile.mkdirs();
-                } else {
-                    entryFile.getParentFile().mkdirs();
-                    try (InputStream is = zipFile.getInputStream(entry);
-                         FileOutputStream fos = new FileOutputStream(entryFile)) {
-                        byte[] buffer = new byte[8192];
-                        int bytesRead;
-                        while ((bytesRead = is.read(buffer)) != -1) {
-                            fos.write(buffer, 0, bytesRead);
-                        }
-                        fileCount++;
-                    }
+    public List<HtmlTextExtractor.Result> extractChapterTexts(String filePath) throws IOException {
+        try (ZipFile zipFile = new ZipFile(new File(filePath))) {
+            EpubPackage epub = EpubPackage.load(filePath, zipFile);
+            List<HtmlTextExtractor.Result> texts = new ArrayList<>();
+
+            for (EpubPackage.ManifestItem item : epub.getSpine()) {
+                ZipEntry entry = zipFile.getEntry(item.entryName);
+                try {
+                    String content = entry != null ? readZipEntry(zipFile, entry) : null;
+                    texts.add(HtmlTextExtractor.extract(content));
+                } catch (RuntimeException e) {
+                    System.err.println("⚠ Could not extract text of " + item.entryName + ": " + e.getMessage());
+                    texts.add(HtmlTextExtractor.extract(null));
                 }
             }
-
-            zipFile.close();
-            System.out.println("✓ Extracted " + fileCount + " files to temp directory");
-
-            currentTempDir = tempDir;
-            return tempDir;
-
+            return texts;
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("✗ Error extracting EPUB: " + e.getMessage());
-            e.printStackTrace();
-            return null;
+            throw new IOException("Could not read EPUB: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Clean up temp directory
+     * Open an EPUB for reading. Only the spine is resolved here; chapters are
+     * read from the archive and processed the first time they are requested.
+     * Images, stylesheets and fonts are served from the open archive through
+     * the epub:// protocol for as long as the returned source stays open.
      */
-    public void cleanupTempDir() {
-        if (currentTempDir != null) {
-            try {
-                deleteDirectory(new File(currentTempDir));
-                System.out.println("✓ Cleaned up temp directory: " + currentTempDir);
-                currentTempDir = null;
-            } catch (Exception e) {
-                System.err.println("⚠ Could not delete temp directory: " + e.getMessage());
-            }
-        }
-    }
-
-    private void deleteDirectory(File dir) {
-        if (dir.isDirectory()) {
-            File[] children = dir.listFiles();
-            if (children != null) {
-                for (File child : children) {
-                    deleteDirectory(child);
-                }
-            }
-        }
-        dir.delete();
-    }
-
-    public List<String> getChapterContents(String filePath) {
-        List<String> chapters = new ArrayList<>();
-
-        // Extract EPUB to temp directory first
-        String tempDir = extractEpubToTemp(filePath);
-        if (tempDir == null) {
-            chapters.add("<html><body><h1>Error: Could not extract EPUB</h1></body></html>");
-            return chapters;
-        }
-
-        ZipFile zipFile = null;
+    public EpubChapterSource openChapterSource(String filePath) throws IOException {
+        File epubFile = new File(filePath);
+        String bookKey = FileFingerprint.compute(epubFile);
+        ZipFile zipFile = new ZipFile(epubFile);
 
         try {
-            zipFile = new ZipFile(new File(filePath));
-            ZipEntry opfEntry = findOpfFile(zipFile);
+            EpubPackage epub = EpubPackage.load(filePath, zipFile);
+            List<EpubPackage.ManifestItem> spine = epub.getSpine();
 
-            if (opfEntry == null) {
-                System.err.println("✗ OPF file not found in EPUB");
-                chapters.add("<html><body><h1>Error: Could not read EPUB file</h1></body></html>");
-                return chapters;
+            if (spine.isEmpty()) {
+                throw new IOException("No chapters found in EPUB spine");
             }
 
-            Document opfDoc = parseXmlEntry(zipFile, opfEntry);
+            System.out.println("→ Opened EPUB with " + spine.size() + " chapters (loaded on demand)");
 
-            NodeList spineItems = opfDoc.getElementsByTagName("itemref");
-            if (spineItems.getLength() == 0) {
-                spineItems = opfDoc.getElementsByTagNameNS("*", "itemref");
-            }
+            EpubPathIndex pathIndex = epub.getPathIndex();
+            String opfFolder = epub.getOpfFolder();
+            EpubResourceProtocol.register(bookKey, zipFile);
 
-            Map<String, String> manifest = buildManifestWithNamespace(opfDoc);
-            String opfFolder = getParentFolder(opfEntry.getName());
-
-            System.out.println("→ Reading " + spineItems.getLength() + " chapters from EPUB");
-
-            for (int i = 0; i < spineItems.getLength(); i++) {
-                Element itemref = (Element) spineItems.item(i);
-                String idref = itemref.getAttribute("idref");
-
-                if (idref == null || idref.isEmpty()) continue;
-
-                String href = manifest.get(idref);
-                if (href != null) {
-                    String fullPath = normalizePath(opfFolder, href);
-                    ZipEntry chapterEntry = findChapterEntry(zipFile, fullPath, opfFolder, href);
-
-                    if (chapterEntry != null) {
-                        String content = readZipEntry(zipFile, chapterEntry);
-                        if (content != null && !content.trim().isEmpty()) {
-                            // Process images using temp directory
-                            content = processImagesWithTempDir(content, tempDir, opfFolder);
-                            chapters.add(content);
-                            System.out.println("✓ Chapter " + (i + 1) + ": " + chapterEntry.getName());
-                        } else {
-                            chapters.add("<html><body><h2>Chapter " + (i + 1) + "</h2><p>No content</p></body></html>");
-                        }
-                    } else {
-                        System.err.println("✗ Chapter file not found: " + fullPath);
-                        chapters.add("<html><body><h2>Chapter " + (i + 1) + "</h2><p>File not found</p></body></html>");
+            return new EpubChapterSource(
+                    spine.size(),
+                    index -> loadChapter(zipFile, pathIndex, bookKey, opfFolder, spine.get(index).entryName, index),
+                    () -> {
+                        EpubResourceProtocol.unregister(bookKey);
+                        zipFile.close();
                     }
-                }
-            }
-
-            if (chapters.isEmpty()) {
-                chapters.add("<html><body><h1>No Content</h1><p>Could not load chapters.</p></body></html>");
-            }
+            );
 
+        } catch (IOException e) {
+            closeZipFile(zipFile);
+            throw e;
         } catch (Exception e) {
-            System.err.println("✗ Error reading EPUB chapters: " + e.getMessage());
-            e.printStackTrace();
-            chapters.clear();
-            chapters.add("<html><body><h1>Error</h1><p>" + e.getMessage() + "</p></body></html>");
-        } finally {
             closeZipFile(zipFile);
+            throw new IOException("Could not read EPUB: " + e.getMessage(), e);
         }
-
-        return chapters;
     }
 
     /**
-     * IMPROVED: Process images using extracted temp directory (Calibre-style)
+     * Get a single spine chapter, from the chapter cache when it was processed before
      */
-    private String processImagesWithTempDir(String htmlContent, String tempDir, String opfFolder) {
-        if (htmlContent == null || htmlContent.isEmpty()) return htmlContent;
-
-        try {
-            String processed = htmlContent;
-            int imageCount = 0;
-            int successCount = 0;
-
-            // Patterns for finding images
-            String[] imgPatterns = {
-                    "(?i)<img([^>]*?)src\\s*=\\s*[\"']([^\"']+)[\"']([^>]*?)>",
-                    "(?i)<image([^>]*?)href\\s*=\\s*[\"']([^\"']+)[\"']([^>]*?)>",
-                    "(?i)<image([^>]*?)xlink:href\\s*=\\s*[\"']([^\"']+)[\"']([^>]*?)>"
-            };
-
-            for (String patternStr : imgPatterns) {
-                Pattern pattern = Pattern.compile(patternStr);
-                Matcher matcher = pattern.matcher(processed);
-                StringBuffer result = new StringBuffer();
-
-                while (matcher.find()) {
-                    imageCount++;
-                    String beforeSrc = matcher.group(1);
-                    String imgSrc = matcher.group(2);
-                    String afterSrc = matcher.group(3);
-
-                    // Skip data URLs
-                    if (imgSrc.startsWith("data:")) {
-                        matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group(0)));
-                        continue;
-                    }
-
-                    try {
-                        // Find image file in temp directory
-                        File imageFile = findImageInTempDir(tempDir, imgSrc, opfFolder);
-
-                        if (imageFile != null && imageFile.exists()) {
-                            // Convert to file:// URL
-                            String fileUrl = imageFile.toURI().toString();
-
-                            // Replace with file URL
-                            String newTag;
-                            if (patternStr.contains("xlink:href")) {
-                                newTag = String.format("<image%sxlink:href=\"%s\"%s>",
-                                        beforeSrc, fileUrl, afterSrc);
-                            } else if (patternStr.contains("<image")) {
-                                newTag = String.format("<image%shref=\"%s\"%s>",
-                                        beforeSrc, fileUrl, afterSrc);
-                            } else {
-                                newTag = String.format("<img%ssrc=\"%s\"%s>",
-                                        beforeSrc, fileUrl, afterSrc);
-                            }
-
-                            matcher.appendReplacement(result, Matcher.quoteReplacement(newTag));
-                            successCount++;
-                            System.out.println("✓ Linked image " + successCount + ": " + imgSrc + " → " + imageFile.getName());
-                        } else {
-                            System.err.println("⚠ Image not found: " + imgSrc);
-                            matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group(0)));
-                        }
-                    } catch (Exception e) {
-                        System.err.println("✗ Error processing image " + imgSrc + ": " + e.getMessage());
-                        matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group(0)));
-                    }
-                }
-
-                matcher.appendTail(result);
-                processed = result.toString();
-            }
-
-            if (imageCount > 0) {
-                System.out.println("✓ Image processing: " + successCount + "/" + imageCount + " images linked successfully");
-            }
-
-            return processed;
+    private String loadChapter(ZipFile zipFile, EpubPathIndex pathIndex, String bookKey,
+                               String opfFolder, String entryName, int index) {
+        String cacheName = "chapter-" + index + ".v" + CHAPTER_CACHE_VERSION + ".html";
+        String cached = CHAPTER_CACHE.readString(bookKey, cacheName);
+        if (cached != null) {
+            return cached;
+        }
 
-        } catch (Exception e) {
-            System.err.println("✗ Error processing images: " + e.getMessage());
-            e.printStackTrace();
-            return htmlContent;
+        String content = readChapter(zipFile, pathIndex, bookKey, opfFolder, entryName, index);
+        if (content != null) {
+            CHAPTER_CACHE.writeString(bookKey, cacheName, content);
+            return content;
         }
+        return "<html><body><h2>Chapter " + (index + 1) + "</h2><p>File not found</p></body></html>";
     }
 
     /**
-     * Find image file in extracted temp directory
+     * Read and process a single spine chapter from the archive
      */
-    private File findImageInTempDir(String tempDir, String imgSrc, String opfFolder) {
-        // Clean up the image source path
-        String cleanSrc = imgSrc;
+    private String readChapter(ZipFile zipFile, EpubPathIndex pathIndex, String bookKey,
+                               String opfFolder, String entryName, int index) {
+        ZipEntry chapterEntry = zipFile.getEntry(entryName);
 
-        // Remove URL fragments
-        if (cleanSrc.contains("#")) {
-            cleanSrc = cleanSrc.substring(0, cleanSrc.indexOf("#"));
-        }
-
-        // Remove query strings
-        if (cleanSrc.contains("?")) {
-            cleanSrc = cleanSrc.substring(0, cleanSrc.indexOf("?"));
-        }
-
-        // Decode URL encoding
-        try {
-            cleanSrc = java.net.URLDecoder.decode(cleanSrc, "UTF-8");
-        } catch (Exception e) {
-            // Ignore
+        if (chapterEntry == null) {
+            System.err.println("✗ Chapter file not found: " + entryName);
+            return null;
         }
 
-        // Try multiple path variations
-        String[] pathVariations = {
-                cleanSrc,
-                cleanSrc.replaceFirst("^/+", ""),
-                normalizePath(opfFolder, cleanSrc),
-                "OEBPS/" + cleanSrc,
-                "EPUB/" + cleanSrc,
-                "OPS/" + cleanSrc,
-                "images/" + cleanSrc,
-                "Images/" + cleanSrc,
-                "img/" + cleanSrc
-        };
-
-        for (String path : pathVariations) {
-            File imageFile = new File(tempDir, path);
-            if (imageFile.exists() && imageFile.isFile()) {
-                System.out.println("  → Found: " + path);
-                return imageFile;
-            }
+        String content = readZipEntry(zipFile, chapterEntry);
+        if (content == null || content.trim().isEmpty()) {
+            return "<html><body><h2>Chapter " + (index + 1) + "</h2><p>No content</p></body></html>";
         }
 
-        // Try case-insensitive search as last resort
-        return findImageCaseInsensitive(new File(tempDir), cleanSrc);
+        // Point images, stylesheets and CSS urls at the epub:// protocol
+        content = processResources(content, pathIndex, bookKey, getParentFolder(chapterEntry.getName()), opfFolder);
+        System.out.println("✓ Chapter " + (index + 1) + ": " + chapterEntry.getName());
+        return content;
     }
 
     /**
-     * Case-insensitive recursive file search
+     * Delete leftover extraction folders from versions that unpacked EPUBs to the temp dir
      */
-    private File findImageCaseInsensitive(File dir, String fileName) {
-        if (!dir.isDirectory()) return null;
+    public static void purgeLegacyTempDirs() {
+        File tempBase = new File(System.getProperty("java.io.tmpdir"));
+        File[] leftovers = tempBase.listFiles((dir, name) -> name.startsWith("ebook-reader-"));
+        if (leftovers == null) return;
 
-        String targetName = new File(fileName).getName().toLowerCase();
-
-        File[] files = dir.listFiles();
-        if (files == null) return null;
-
-        // First pass: direct children
-        for (File file : files) {
-            if (file.isFile() && file.getName().toLowerCase().equals(targetName)) {
-                return file;
+        for (File leftover : leftovers) {
+            if (leftover.isDirectory()) {
+                deleteDirectory(leftover);
+                System.out.println("✓ Removed old temp directory: " + leftover.getName());
             }
         }
+    }
 
-        // Second pass: recursive search
-        for (File file : files) {
-            if (file.isDirectory()) {
-                File found = findImageCaseInsensitive(file, fileName);
-                if (found != null) return found;
+    private static void deleteDirectory(File dir) {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    deleteDirectory(child);
+                } else {
+                    child.delete();
+                }
             }
         }
+        dir.delete();
+    }
 
-        return null;
+    /**
+     * Rewrite image, stylesheet and CSS url() references to epub:// URLs served from the open archive
+     */
+    private String processResources(String htmlContent, EpubPathIndex pathIndex, String bookKey,
+                                    String chapterFolder, String opfFolder) {
+        try {
+            return HtmlResourceRewriter.rewrite(htmlContent, reference -> {
+                String entryName = pathIndex.find(chapterFolder, reference, opfFolder);
+                return entryName != null ? EpubResourceProtocol.toUrl(bookKey, entryName) : null;
+            });
+        } catch (Exception e) {
+            System.err.println("✗ Error processing chapter resources: " + e.getMessage());
+            e.printStackTrace();
+            return htmlContent;
+        }
     }
 
-    public List<TocItem> getTableOfContentsWithMapping(String filePath, List<String> chapters) {
+    public List<TocItem> getTableOfContentsWithMapping(String filePath, int chapterCount) {
         List<TocItem> toc = new ArrayList<>();
-        ZipFile zipFile = null;
 
         try {
-            zipFile = new ZipFile(new File(filePath));
-            ZipEntry opfEntry = findOpfFile(zipFile);
-
-            if (opfEntry == null) {
-                for (int i = 0; i < chapters.size(); i++) {
-                    toc.add(new TocItem("Chapter " + (i + 1), i));
-                }
-                return toc;
-            }
-
-            Document opfDoc = parseXmlEntry(zipFile, opfEntry);
-
-            ZipEntry ncxEntry = findFileInZip(zipFile, "toc.ncx");
-            if (ncxEntry == null) {
-                ncxEntry = findFileInZip(zipFile, ".ncx");
-            }
-
-            if (ncxEntry != null) {
-                Document ncxDoc = parseXmlEntry(zipFile, ncxEntry);
-                NodeList navPoints = ncxDoc.getElementsByTagName("navPoint");
-                if (navPoints.getLength() == 0) {
-                    navPoints = ncxDoc.getElementsByTagNameNS("*", "navPoint");
-                }
-
-                Map<String, Integer> spineOrderMap = buildSpineOrderMap(opfDoc);
-
-                for (int i = 0; i < navPoints.getLength(); i++) {
-                    Element navPoint = (Element) navPoints.item(i);
-
-                    NodeList textNodes = navPoint.getElementsByTagName("text");
-                    if (textNodes.getLength() == 0) {
-                        textNodes = navPoint.getElementsByTagNameNS("*", "text");
-                    }
-
-                    String title = "Chapter " + (i + 1);
-                    if (textNodes.getLength() > 0) {
-                        title = textNodes.item(0).getTextContent().trim();
-                    }
-
-                    NodeList contentNodes = navPoint.getElementsByTagName("content");
-                    if (contentNodes.getLength() == 0) {
-                        contentNodes = navPoint.getElementsByTagNameNS("*", "content");
-                    }
+            EpubPackage epub = EpubPackage.load(filePath);
+            List<EpubPackage.NavPoint> navPoints = epub.getToc();
 
-                    int pageIndex = i;
-                    if (contentNodes.getLength() > 0) {
-                        Element content = (Element) contentNodes.item(0);
-                        String src = content.getAttribute("src");
-
-                        if (src != null && !src.isEmpty()) {
-                            if (src.contains("#")) {
-                                src = src.substring(0, src.indexOf("#"));
-                            }
-
-                            Integer order = spineOrderMap.get(src);
-                            if (order != null && order >= 0 && order < chapters.size()) {
-                                pageIndex = order;
-                            }
-                        }
-                    }
+            for (int i = 0; i < navPoints.size(); i++) {
+                EpubPackage.NavPoint navPoint = navPoints.get(i);
 
-                    toc.add(new TocItem(title, pageIndex));
+                int pageIndex = epub.getSpineIndex(navPoint.entryName);
+                if (pageIndex < 0 || pageIndex >= chapterCount) {
+                    pageIndex = Math.min(i, chapterCount - 1);
                 }
-            }
 
-            if (toc.isEmpty()) {
-                for (int i = 0; i < chapters.size(); i++) {
-                    toc.add(new TocItem("Chapter " + (i + 1), i));
-                }
+                toc.add(new TocItem(navPoint.title, pageIndex));
             }
-
         } catch (Exception e) {
             System.err.println("✗ Error reading EPUB TOC: " + e.getMessage());
             e.printStackTrace();
+            toc.clear();
+        }
 
-            for (int i = 0; i < chapters.size(); i++) {
+        if (toc.isEmpty()) {
+            for (int i = 0; i < chapterCount; i++) {
                 toc.add(new TocItem("Chapter " + (i + 1), i));
             }
-        } finally {
-            closeZipFile(zipFile);
         }
 
         return toc;
     }
 
-    private Map<String, Integer> buildSpineOrderMap(Document opfDoc) {
-        Map<String, Integer> orderMap = new HashMap<>();
-
-        try {
-            Map<String, String> manifest = buildManifestWithNamespace(opfDoc);
-
-            NodeList spineItems = opfDoc.getElementsByTagName("itemref");
-            if (spineItems.getLength() == 0) {
-                spineItems = opfDoc.getElementsByTagNameNS("*", "itemref");
-            }
-
-            for (int i = 0; i < spineItems.getLength(); i++) {
-                Element itemref = (Element) spineItems.item(i);
-                String idref = itemref.getAttribute("idref");
-
-                if (idref != null && !idref.isEmpty()) {
-                    String href = manifest.get(idref);
-                    if (href != null) {
-                        String filename = href;
-                        if (filename.contains("/")) {
-                            filename = filename.substring(filename.lastIndexOf("/") + 1);
-                        }
-                        orderMap.put(filename, i);
-                        orderMap.put(href, i);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("✗ Error building spine order map: " + e.getMessage());
-        }
-
-        return orderMap;
-    }
-
     // REPLACE convertToStyledHtml() method in EpubService with this UPDATED version:
 
     // ADD to EpubService.java
@@ -717,54 +435,6 @@ public class EpubService {
 
     // ========== Helper Methods ==========
 
-    private ZipEntry findOpfFile(ZipFile zipFile) {
-        ZipEntry containerEntry = zipFile.getEntry("META-INF/container.xml");
-        if (containerEntry != null) {
-            try {
-                Document containerDoc = parseXmlEntry(zipFile, containerEntry);
-                NodeList rootfiles = containerDoc.getElementsByTagName("rootfile");
-                if (rootfiles.getLength() == 0) {
-                    rootfiles = containerDoc.getElementsByTagNameNS("*", "rootfile");
-                }
-
-                if (rootfiles.getLength() > 0) {
-                    Element rootfile = (Element) rootfiles.item(0);
-                    String opfPath = rootfile.getAttribute("full-path");
-                    return zipFile.getEntry(opfPath);
-                }
-            } catch (Exception e) {
-                System.err.println("✗ Error reading container.xml: " + e.getMessage());
-            }
-        }
-
-        return findFileInZip(zipFile, ".opf");
-    }
-
-    private ZipEntry findFileInZip(ZipFile zipFile, String extension) {
-        Enumeration<? extends ZipEntry> entries = zipFile.entries();
-        while (entries.hasMoreElements()) {
-            ZipEntry entry = entries.nextElement();
-            if (!entry.isDirectory() && entry.getName().endsWith(extension)) {
-                return entry;
-            }
-        }
-        return null;
-    }
-
-    private Document parseXmlEntry(ZipFile zipFile, ZipEntry entry) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(true);
-        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", false);
-        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        try (InputStream is = zipFile.getInputStream(entry)) {
-            return builder.parse(is);
-        }
-    }
-
     private String readZipEntry(ZipFile zipFile, ZipEntry entry) {
         try (InputStream is = zipFile.getInputStream(entry);
              BufferedReader reader = new BufferedReader(
@@ -782,68 +452,6 @@ public class EpubService {
         }
     }
 
-    private String getMetadataValueWithNamespace(Document doc, String tagName) {
-        try {
-            NodeList nodes = doc.getElementsByTagName("dc:" + tagName);
-            if (nodes.getLength() == 0) {
-                nodes = doc.getElementsByTagName(tagName);
-            }
-            if (nodes.getLength() == 0) {
-                nodes = doc.getElementsByTagNameNS("http://purl.org/dc/elements/1.1/", tagName);
-            }
-
-            if (nodes.getLength() > 0) {
-                String value = nodes.item(0).getTextContent().trim();
-                return value.isEmpty() ? null : value;
-            }
-        } catch (Exception e) {
-            System.err.println("✗ Error getting metadata for " + tagName);
-        }
-        return null;
-    }
-
-    private Map<String, String> buildManifestWithNamespace(Document opfDoc) {
-        Map<String, String> manifest = new HashMap<>();
-        NodeList items = opfDoc.getElementsByTagName("item");
-
-        if (items.getLength() == 0) {
-            items = opfDoc.getElementsByTagNameNS("*", "item");
-        }
-
-        for (int i = 0; i < items.getLength(); i++) {
-            Element item = (Element) items.item(i);
-            String id = item.getAttribute("id");
-            String href = item.getAttribute("href");
-            if (id != null && !id.isEmpty() && href != null && !href.isEmpty()) {
-                manifest.put(id, href);
-            }
-        }
-
-        return manifest;
-    }
-
-    private ZipEntry findChapterEntry(ZipFile zipFile, String fullPath, String opfFolder, String href) {
-        ZipEntry entry = zipFile.getEntry(fullPath);
-        if (entry != null) return entry;
-
-        entry = zipFile.getEntry(href);
-        if (entry != null) return entry;
-
-        entry = zipFile.getEntry("OEBPS/" + href);
-        if (entry != null) return entry;
-
-        String lowerPath = fullPath.toLowerCase();
-        Enumeration<? extends ZipEntry> entries = zipFile.entries();
-        while (entries.hasMoreElements()) {
-            ZipEntry ze = entries.nextElement();
-            if (ze.getName().toLowerCase().equals(lowerPath)) {
-                return ze;
-            }
-        }
-
-        return null;
-    }
-
     private String normalizePath(String folder, String file) {
         if (folder.isEmpty()) return file;
 
@@ -863,30 +471,15 @@ public class EpubService {
         return lastSlash > 0 ? path.substring(0, lastSlash + 1) : "";
     }
 
-    private String extractCover(ZipFile zipFile, Document opfDoc, String bookTitle) {
+    private String extractCover(ZipFile zipFile, EpubPackage epub, String bookTitle, String filePath) {
         try {
-            NodeList items = opfDoc.getElementsByTagName("item");
-            if (items.getLength() == 0) {
-                items = opfDoc.getElementsByTagNameNS("*", "item");
-            }
-
-            for (int i = 0; i < items.getLength(); i++) {
-                Element item = (Element) items.item(i);
-                String id = item.getAttribute("id").toLowerCase();
-                String mediaType = item.getAttribute("media-type");
-
-                if (id.contains("cover") && mediaType != null && mediaType.startsWith("image/")) {
-                    String href = item.getAttribute("href");
-                    String opfFolder = getParentFolder(findOpfFile(zipFile).getName());
-                    String fullPath = normalizePath(opfFolder, href);
-
-                    ZipEntry imageEntry = findChapterEntry(zipFile, fullPath, opfFolder, href);
+            for (EpubPackage.ManifestItem item : epub.getCoverCandidates()) {
+                ZipEntry imageEntry = item.entryName != null ? zipFile.getEntry(item.entryName) : null;
 
-                    if (imageEntry != null) {
-                        String coverPath = saveCoverImage(zipFile, imageEntry, bookTitle);
-                        if (coverPath != null) {
-                            return coverPath;
-                        }
+                if (imageEntry != null) {
+                    String coverPath = saveCoverImage(zipFile, imageEntry, bookTitle, filePath);
+                    if (coverPath != null) {
+                        return coverPath;
                     }
                 }
             }
@@ -897,7 +490,7 @@ public class EpubService {
         return null;
     }
 
-    private String saveCoverImage(ZipFile zipFile, ZipEntry imageEntry, String bookTitle) {
+    private String saveCoverImage(ZipFile zipFile, ZipEntry imageEntry, String bookTitle, String filePath) {
         try {
             String userHome = System.getProperty("user.home");
             String coversDir = userHome + File.separator + ".ebook-reader" + File.separator + "covers";
@@ -906,9 +499,9 @@ public class EpubService {
                 coversDirFile.mkdirs();
             }
 
-            String safeTitle = bookTitle.replaceAll("[^a-zA-Z0-9.-]", "_");
             String ext = imageEntry.getName().substring(imageEntry.getName().lastIndexOf('.'));
-            String coverPath = coversDir + File.separator + safeTitle + "_cover" + ext;
+            String coverPath = coversDir + File.separator
+                    + CoverThumbnails.coverBaseName(bookTitle, new File(filePath)) + ext;
 
             try (InputStream is = zipFile.getInputStream(imageEntry);
                  FileOutputStream fos = new FileOutputStream(coverPath)) {
@@ -919,6 +512,7 @@ public class EpubService {
                 }
             }
 
+            CoverThumbnails.generate(coverPath);
             return coverPath;
 
         } catch (Exception e) {
@@ -0,0 +1,221 @@
+package com.ebook.reader.service;
+
+import com.ebook.reader.util.FileFingerprint;
+import com.ebook.reader.util.HtmlTextExtractor;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Per-chapter plain text of an EPUB, stripped once for in-book search.
+ *
+ * Each chapter keeps the map from its plain text back to the DOM text nodes
+ * it came from, so a hit can be highlighted in the rendered chapter. The
+ * index is built on the first search of a book and stored gzipped in the
+ * disk cache under the file's fingerprint, next to the PDF text indexes.
+ * Only the most recently searched book's index is kept in memory.
+ */
+public class EpubTextIndex {
+
+    private static final int INDEX_VERSION = 1;
+    // Whole-book text is large, and reading it back from disk is quick
+    private static final int MAX_OPEN_INDEXES = 1;
+
+    private static final Map<String, EpubTextIndex> OPEN_INDEXES =
+            new LinkedHashMap<String, EpubTextIndex>(8, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, EpubTextIndex> eldest) {
+                    return size() > MAX_OPEN_INDEXES;
+                }
+            };
+
+    private final List<HtmlTextExtractor.Result> chapters;
+    // Per chapter: ordinal of each text node among the non-blank ones, built lazily
+    private final int[][] visibleOrdinals;
+
+    /**
+     * One occurrence of the query, with its position in the chapter's DOM
+     */
+    public static class SearchHit {
+        public final int chapterIndex;
+        public final int offset;
+        /** Index of the text node among the chapter's non-blank text nodes, or -1 */
+        public final int nodeIndex;
+        public final int nodeOffset;
+        /** How many hits came before this one in the same chapter */
+        public final int occurrence;
+        public final String snippet;
+
+        public SearchHit(int chapterIndex, int offset, int nodeIndex, int nodeOffset,
+                         int occurrence, String snippet) {
+            this.chapterIndex = chapterIndex;
+            this.offset = offset;
+            this.nodeIndex = nodeIndex;
+            this.nodeOffset = nodeOffset;
+            this.occurrence = occurrence;
+            this.snippet = snippet;
+        }
+    }
+
+    private EpubTextIndex(List<HtmlTextExtractor.Result> chapters) {
+        this.chapters = chapters;
+        this.visibleOrdinals = new int[chapters.size()][];
+    }
+
+    /**
+     * Get the index of an EPUB from memory or disk, or strip its chapters if
+     * it was never indexed. Does file I/O, so don't call it on the FX thread.
+     * If the book can't be read, nothing is kept in memory or on disk, so the
+     * next search tries to index it again.
+     */
+    public static EpubTextIndex forFile(String filePath) throws IOException {
+        String fingerprint = FileFingerprint.compute(new File(filePath));
+
+        synchronized (OPEN_INDEXES) {
+            EpubTextIndex index = OPEN_INDEXES.get(fingerprint);
+            if (index != null) {
+                return index;
+            }
+        }
+
+        EpubTextIndex index = readFromDisk(filePath, fingerprint);
+        if (index == null) {
+            long start = System.currentTimeMillis();
+            index = new EpubTextIndex(new EpubService().extractChapterTexts(filePath));
+            System.out.println("✓ Indexed text of " + new File(filePath).getName() + " ("
+                    + index.getChapterCount() + " chapters) in " + (System.currentTimeMillis() - start) + "ms");
+            index.writeToDisk(fingerprint);
+        }
+
+        synchronized (OPEN_INDEXES) {
+            EpubTextIndex existing = OPEN_INDEXES.get(fingerprint);
+            if (existing != null) {
+                return existing;
+            }
+            OPEN_INDEXES.put(fingerprint, index);
+        }
+        return index;
+    }
+
+    public int getChapterCount() {
+        return chapters.size();
+    }
+
+    /**
+     * Find every case-insensitive occurrence of the query, in reading order.
+     * Hits are passed to onHit as they are found, on the calling thread.
+     * The search stops as soon as cancelled returns true, also in the middle
+     * of a chapter.
+     */
+    public void search(String query, Consumer<SearchHit> onHit, BooleanSupplier cancelled) {
+        if (query == null || query.isBlank()) {
+            return;
+        }
+        char[] needle = PdfTextIndex.foldCase(query.trim());
+
+        for (int chapter = 0; chapter < chapters.size(); chapter++) {
+            if (cancelled.getAsBoolean()) return;
+
+            HtmlTextExtractor.Result result = chapters.get(chapter);
+            String text = result.text;
+            if (text.length() < needle.length) continue;
+
+            char[] haystack = PdfTextIndex.foldCase(text);
+            int occurrence = 0;
+            for (int offset = PdfTextIndex.indexOf(haystack, needle, 0); offset >= 0;
+                 offset = PdfTextIndex.indexOf(haystack, needle, offset + needle.length)) {
+                int node = result.nodeAt(offset);
+                int nodeIndex = node >= 0 ? visibleOrdinal(chapter, node) : -1;
+                int nodeOffset = node >= 0 ? offset - result.nodeStarts[node] : 0;
+
+                onHit.accept(new SearchHit(chapter, offset, nodeIndex, nodeOffset, occurrence++,
+                        PdfTextIndex.snippet(text, offset, needle.length)));
+                if (cancelled.getAsBoolean()) return;
+            }
+        }
+    }
+
+    /**
+     * Position of a text node among the chapter's non-blank text nodes.
+     * Whitespace-only nodes are skipped because the reader's page wrapper
+     * and the HTML parser add and drop those around the chapter's own markup.
+     */
+    private synchronized int visibleOrdinal(int chapter, int node) {
+        int[] ordinals = visibleOrdinals[chapter];
+        if (ordinals == null) {
+            HtmlTextExtractor.Result result = chapters.get(chapter);
+            ordinals = new int[result.nodeStarts.length];
+            int visible = 0;
+            for (int i = 0; i < ordinals.length; i++) {
+                boolean blank = result.text.substring(result.nodeStarts[i],
+                        result.nodeStarts[i] + result.nodeLengths[i]).isBlank();
+                ordinals[i] = blank ? -1 : visible++;
+            }
+            visibleOrdinals[chapter] = ordinals;
+        }
+        return ordinals[node];
+    }
+
+    private static EpubTextIndex readFromDisk(String filePath, String fingerprint) {
+        byte[] data = PdfTextIndex.INDEX_CACHE.readBytes(fingerprint, cacheName());
+        if (data == null) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)))) {
+            int chapterCount = in.readInt();
+            List<HtmlTextExtractor.Result> chapters = new ArrayList<>(chapterCount);
+            for (int i = 0; i < chapterCount; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                int nodeCount = in.readInt();
+                int[] nodeStarts = new int[nodeCount];
+                int[] nodeLengths = new int[nodeCount];
+                for (int n = 0; n < nodeCount; n++) {
+                    nodeStarts[n] = in.readInt();
+                    nodeLengths[n] = in.readInt();
+                }
+                chapters.add(new HtmlTextExtractor.Result(new String(bytes, StandardCharsets.UTF_8),
+                        nodeStarts, nodeLengths));
+            }
+            System.out.println("✓ Loaded text index of " + new File(filePath).getName() + " from cache");
+            return new EpubTextIndex(chapters);
+        } catch (IOException e) {
+            System.err.println("⚠ Discarding unreadable text index: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String fingerprint) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(chapters.size());
+            for (HtmlTextExtractor.Result chapter : chapters) {
+                byte[] encoded = chapter.text.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+                out.writeInt(chapter.nodeStarts.length);
+                for (int n = 0; n < chapter.nodeStarts.length; n++) {
+                    out.writeInt(chapter.nodeStarts[n]);
+                    out.writeInt(chapter.nodeLengths[n]);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ Could not store text index: " + e.getMessage());
+            return;
+        }
+        PdfTextIndex.INDEX_CACHE.writeBytes(fingerprint, cacheName(), bytes.toByteArray());
+    }
+
+    private static String cacheName() {
+        return "epub-text.v" + INDEX_VERSION + ".gz";
+    }
+}
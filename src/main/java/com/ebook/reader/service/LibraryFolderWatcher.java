@@ -0,0 +1,446 @@
+package com.ebook.reader.service;
+
+import com.ebook.reader.dao.BookDAO;
+import com.ebook.reader.dao.BookDAO.FileState;
+import com.ebook.reader.dao.LibraryFolderDAO;
+import com.ebook.reader.util.FileFingerprint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the library in sync with the configured library folders.
+ *
+ * Each folder is scanned once at startup and then watched with a WatchService.
+ * A scan compares every ebook file's size and modification time with the state
+ * stored in the books table, so unchanged books are never parsed again. Files
+ * whose timestamp changed are fingerprinted and only re-imported if their
+ * fingerprint changed. Books whose file disappeared are flagged as missing,
+ * not deleted. A scan or batch of file events only loads the stored states
+ * of the paths it covers.
+ */
+public class LibraryFolderWatcher {
+
+    // Wait for a burst of file events (e.g. a copy in progress) to settle
+    private static final long SETTLE_MILLIS = 2000;
+    private static final long POLL_MILLIS = 500;
+
+    private static LibraryFolderWatcher instance;
+
+    /**
+     * Counts from one scan
+     */
+    public static class ScanResult {
+        public int scanned;
+        public int unchanged;
+        public int queuedForImport;
+        public int missing;
+        public int restored;
+        public long elapsedMillis;
+    }
+
+    /**
+     * An ebook file found on disk
+     */
+    private static class FoundFile {
+        final String path;
+        final long size;
+        final long modified;
+
+        FoundFile(String path, long size, long modified) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+    private final BookDAO bookDAO;
+    private final LibraryFolderDAO folderDAO;
+    private final LibraryImportService importService;
+
+    private final BlockingQueue<Path> scanRequests = new LinkedBlockingQueue<>();
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private final Set<Path> registeredDirs = ConcurrentHashMap.newKeySet();
+    private final Set<Path> pendingChanges = new LinkedHashSet<>(); // watcher thread only
+    private long lastEventTime = 0;
+
+    private volatile Runnable changeListener;
+    private volatile boolean running = false;
+    private WatchService watchService;
+    private Thread thread;
+
+    private LibraryFolderWatcher() {
+        bookDAO = new BookDAO();
+        folderDAO = new LibraryFolderDAO();
+        importService = new LibraryImportService(new EpubService(), new PdfService(), bookDAO);
+    }
+
+    public static synchronized LibraryFolderWatcher getInstance() {
+        if (instance == null) {
+            instance = new LibraryFolderWatcher();
+        }
+        return instance;
+    }
+
+    /**
+     * Called from the watcher thread whenever books were added, changed or flagged
+     */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * Scan all library folders and start watching them. Safe to call more than once.
+     */
+    public synchronized void start() {
+        if (running) return;
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            System.err.println("✗ Could not start library folder watcher: " + e.getMessage());
+            return;
+        }
+
+        running = true;
+        rescanAll();
+
+        thread = new Thread(this::run, "library-folder-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+
+        if (thread != null) {
+            thread.interrupt();
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("✗ Error closing watch service: " + e.getMessage());
+        }
+    }
+
+    public List<String> getFolders() throws SQLException {
+        return folderDAO.getAllFolders();
+    }
+
+    /**
+     * Add a library folder; it is scanned and watched in the background
+     */
+    public void addFolder(String folderPath) throws SQLException {
+        Path folder = normalize(folderPath);
+        folderDAO.addFolder(folder.toString());
+        scanRequests.add(folder);
+        System.out.println("✓ Added library folder: " + folder);
+    }
+
+    /**
+     * Stop watching a folder. Books already imported from it stay in the library.
+     */
+    public void removeFolder(String folderPath) throws SQLException {
+        Path folder = normalize(folderPath);
+        folderDAO.removeFolder(folder.toString());
+
+        Iterator<Map.Entry<WatchKey, Path>> it = watchedDirs.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<WatchKey, Path> entry = it.next();
+            if (entry.getValue().startsWith(folder)) {
+                entry.getKey().cancel();
+                registeredDirs.remove(entry.getValue());
+                it.remove();
+            }
+        }
+        System.out.println("✓ Removed library folder: " + folder);
+    }
+
+    /**
+     * Queue a rescan of every library folder
+     */
+    public void rescanAll() {
+        try {
+            for (String folder : folderDAO.getAllFolders()) {
+                scanRequests.add(normalize(folder));
+            }
+        } catch (SQLException e) {
+            System.err.println("✗ Error loading library folders: " + e.getMessage());
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Path request;
+                while ((request = scanRequests.poll()) != null) {
+                    scanFolder(request);
+                }
+
+                WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    handleEvents(key);
+                }
+
+                if (!pendingChanges.isEmpty() && System.currentTimeMillis() - lastEventTime >= SETTLE_MILLIS) {
+                    processPendingChanges();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            } catch (Exception e) {
+                System.err.println("✗ Library folder watcher error: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        System.out.println("✓ Library folder watcher stopped");
+    }
+
+    private void handleEvents(WatchKey key) {
+        Path dir = watchedDirs.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null) continue;
+
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, fall back to rescanning the directory
+                scanRequests.add(dir);
+                continue;
+            }
+
+            Path child = dir.resolve((Path) event.context());
+            pendingChanges.add(child);
+            lastEventTime = System.currentTimeMillis();
+        }
+
+        if (!key.reset()) {
+            Path removed = watchedDirs.remove(key);
+            if (removed != null) registeredDirs.remove(removed);
+        }
+    }
+
+    private void processPendingChanges() {
+        List<Path> changed = new ArrayList<>(pendingChanges);
+        pendingChanges.clear();
+
+        List<FoundFile> found = new ArrayList<>();
+        List<Path> scope = new ArrayList<>();
+
+        for (Path path : changed) {
+            if (Files.isDirectory(path)) {
+                // New or moved-in directory: watch and scan it as a whole
+                scanFolder(path);
+                continue;
+            }
+
+            scope.add(path);
+            if (isEbookFile(path)) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                    found.add(new FoundFile(path.toString(), attrs.size(), attrs.lastModifiedTime().toMillis()));
+                } catch (IOException e) {
+                    // Deleted again before we got to it
+                }
+            }
+        }
+
+        if (scope.isEmpty()) return;
+
+        // A path that no longer exists may have been a file or a whole directory
+        reconcile(found, scope);
+    }
+
+    /**
+     * Walk a folder, registering its directories with the watch service, and
+     * reconcile the ebook files found with the library
+     */
+    private void scanFolder(Path root) {
+        if (!Files.isDirectory(root)) {
+            System.err.println("⚠ Library folder not available: " + root);
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<FoundFile> found = new ArrayList<>();
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    register(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && isEbookFile(file)) {
+                        found.add(new FoundFile(file.toString(), attrs.size(), attrs.lastModifiedTime().toMillis()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    System.err.println("⚠ Cannot read " + file + ": " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("✗ Error scanning library folder " + root + ": " + e.getMessage());
+            return;
+        }
+
+        ScanResult result = reconcile(found, List.of(root));
+        if (result != null) {
+            result.elapsedMillis = System.currentTimeMillis() - startTime;
+            System.out.println(String.format(Locale.ROOT,
+                    "✓ Scanned %s: %d files in %.1fs (%d unchanged, %d new or changed, %d missing, %d restored)",
+                    root, result.scanned, result.elapsedMillis / 1000.0, result.unchanged,
+                    result.queuedForImport, result.missing, result.restored));
+        }
+    }
+
+    /**
+     * Compare the files found on disk under the scope paths with the stored
+     * file states of those paths. Files not in the library or with changed
+     * content are imported; stored books in scope that were not found are
+     * flagged missing.
+     */
+    private ScanResult reconcile(List<FoundFile> found, List<Path> scope) {
+        List<String> scopePaths = new ArrayList<>(scope.size());
+        for (Path path : scope) {
+            scopePaths.add(path.toString());
+        }
+
+        Map<String, FileState> states;
+        try {
+            states = bookDAO.getFileStates(scopePaths);
+        } catch (SQLException e) {
+            System.err.println("✗ Error loading library file states: " + e.getMessage());
+            return null;
+        }
+
+        ScanResult result = new ScanResult();
+        result.scanned = found.size();
+
+        Set<String> seen = new HashSet<>();
+        List<File> toImport = new ArrayList<>();
+        List<FileState> updates = new ArrayList<>();
+
+        for (FoundFile file : found) {
+            seen.add(file.path);
+            FileState state = states.get(file.path);
+
+            if (state == null) {
+                toImport.add(new File(file.path));
+                continue;
+            }
+
+            if (state.fileSize == file.size && state.fileModified == file.modified) {
+                result.unchanged++;
+                if (state.missing) {
+                    state.missing = false;
+                    updates.add(state);
+                    result.restored++;
+                }
+                continue;
+            }
+
+            // Timestamp or size changed: only re-import if the content did. The
+            // fingerprint samples the start and end of the file, so an edit in the
+            // middle that keeps the size counts as unchanged; see FileFingerprint
+            String hash;
+            try {
+                hash = FileFingerprint.computeContent(new File(file.path));
+            } catch (IOException e) {
+                System.err.println("⚠ Cannot fingerprint " + file.path + ": " + e.getMessage());
+                continue;
+            }
+
+            // Books imported before file states were recorded have no hash yet
+            if (state.fileHash == null || state.fileHash.equals(hash)) {
+                if (state.missing) result.restored++;
+                state.fileSize = file.size;
+                state.fileModified = file.modified;
+                state.fileHash = hash;
+                state.missing = false;
+                updates.add(state);
+                result.unchanged++;
+            } else {
+                toImport.add(new File(file.path));
+            }
+        }
+
+        for (FileState state : states.values()) {
+            if (!state.missing && !seen.contains(state.filePath) && !new File(state.filePath).exists()) {
+                state.missing = true;
+                updates.add(state);
+                result.missing++;
+            }
+        }
+
+        try {
+            bookDAO.updateFileStates(updates);
+        } catch (SQLException e) {
+            System.err.println("✗ Error saving library file states: " + e.getMessage());
+        }
+
+        result.queuedForImport = toImport.size();
+        if (!toImport.isEmpty()) {
+            importService.importFiles(toImport, new LibraryImportService.ImportListener() {
+                @Override
+                public void onFileImported(File file, boolean success, int completed, int total) {
+                }
+
+                @Override
+                public void onFinished(LibraryImportService.ImportSummary summary) {
+                    notifyChanged();
+                }
+            });
+        }
+
+        if (result.missing > 0 || result.restored > 0) {
+            notifyChanged();
+        }
+        return result;
+    }
+
+    private void register(Path dir) {
+        if (registeredDirs.contains(dir)) return;
+
+        try {
+            WatchKey key = dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirs.put(key, dir);
+            registeredDirs.add(dir);
+        } catch (IOException | ClosedWatchServiceException e) {
+            System.err.println("⚠ Cannot watch " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private void notifyChanged() {
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private static boolean isEbookFile(Path path) {
+        String extension = LibraryImportService.getFileExtension(path.getFileName().toString());
+        return extension.equalsIgnoreCase("epub") || extension.equalsIgnoreCase("pdf");
+    }
+
+    private static Path normalize(String folderPath) {
+        return Paths.get(folderPath).toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,289 @@
+package com.ebook.reader.service;
+
+import com.ebook.reader.dao.BookDAO;
+import com.ebook.reader.model.Book;
+import com.ebook.reader.util.FileFingerprint;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports ebook files into the library in two stages.
+ *
+ * Metadata and cover extraction run in parallel on a worker pool sized to the
+ * machine's cores; a single writer thread collects the extracted books and
+ * stores each batch in one transaction, so the database is only touched from
+ * one thread. Files already in the library are updated rather than rejected.
+ * Listener callbacks are invoked from background threads.
+ */
+public class LibraryImportService {
+
+    private static final int WORKER_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+    private static final int WRITE_BATCH_SIZE = 50;
+
+    private final EpubService epubService;
+    private final PdfService pdfService;
+    private final BookDAO bookDAO;
+
+    public LibraryImportService(EpubService epubService, PdfService pdfService, BookDAO bookDAO) {
+        this.epubService = epubService;
+        this.pdfService = pdfService;
+        this.bookDAO = bookDAO;
+    }
+
+    /**
+     * Receives progress of an import, from background threads
+     */
+    public interface ImportListener {
+        /**
+         * Called once per file after it has been stored or has failed
+         */
+        void onFileImported(File file, boolean success, int completed, int total);
+
+        void onFinished(ImportSummary summary);
+    }
+
+    /**
+     * Result of a finished or cancelled import
+     */
+    public static class ImportSummary {
+        public int total;
+        public int imported;
+        public int failed;
+        public int skipped;
+        public boolean cancelled;
+        public long elapsedMillis;
+
+        public double getBooksPerSecond() {
+            return elapsedMillis > 0 ? imported * 1000.0 / elapsedMillis : imported;
+        }
+    }
+
+    /**
+     * Handle for a running import
+     */
+    public static class ImportJob {
+        private volatile boolean cancelled = false;
+        private volatile boolean done = false;
+
+        /**
+         * Stop extracting files that have not started yet. Books that were
+         * already extracted are still stored.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+    }
+
+    /**
+     * Outcome of extracting one file; book is null when extraction failed or was skipped
+     */
+    private static class Extracted {
+        final File file;
+        final Book book;
+        final boolean skipped;
+
+        Extracted(File file, Book book, boolean skipped) {
+            this.file = file;
+            this.book = book;
+            this.skipped = skipped;
+        }
+    }
+
+    /**
+     * Start importing the given files in the background
+     */
+    public ImportJob importFiles(List<File> files, ImportListener listener) {
+        ImportJob job = new ImportJob();
+        List<File> toImport = List.copyOf(files);
+
+        Thread writer = new Thread(() -> runImport(toImport, job, listener), "library-import");
+        writer.setDaemon(true);
+        writer.start();
+
+        return job;
+    }
+
+    private void runImport(List<File> files, ImportJob job, ImportListener listener) {
+        long startTime = System.currentTimeMillis();
+        int total = files.size();
+        System.out.println("→ Importing " + total + " file(s) with " + WORKER_COUNT + " workers");
+
+        BlockingQueue<Extracted> results = new LinkedBlockingQueue<>();
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(WORKER_COUNT, r -> {
+            Thread thread = new Thread(r, "library-import-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (File file : files) {
+            // execute rather than submit, so an Error from extract reaches the uncaught exception handler
+            workers.execute(() -> {
+                boolean skipped = job.isCancelled();
+                Book book = null;
+                try {
+                    if (!skipped) {
+                        book = extract(file);
+                    }
+                } finally {
+                    // The writer waits for one result per file, so there must be one even if extract throws
+                    results.add(new Extracted(file, book, skipped));
+                }
+            });
+        }
+        workers.shutdown();
+
+        ImportSummary summary = new ImportSummary();
+        summary.total = total;
+
+        // Writer stage: store extracted books in batches as they arrive
+        List<Extracted> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        int received = 0;
+        int completed = 0;
+
+        try {
+            while (received < total) {
+                Extracted first = results.take();
+                batch.add(first);
+                received++;
+                received += results.drainTo(batch, WRITE_BATCH_SIZE - batch.size());
+
+                Set<Extracted> stored = store(batch);
+
+                for (Extracted result : batch) {
+                    boolean success = stored.contains(result);
+                    if (result.skipped) {
+                        summary.skipped++;
+                    } else if (success) {
+                        summary.imported++;
+                    } else {
+                        summary.failed++;
+                    }
+
+                    completed++;
+                    if (listener != null && !result.skipped) {
+                        listener.onFileImported(result.file, success, completed, total);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+
+        summary.cancelled = job.isCancelled();
+        summary.elapsedMillis = System.currentTimeMillis() - startTime;
+        job.done = true;
+
+        System.out.println(String.format(Locale.ROOT,
+                "✓ Import finished: %d imported, %d failed, %d skipped in %.1fs (%.1f books/sec)",
+                summary.imported, summary.failed, summary.skipped,
+                summary.elapsedMillis / 1000.0, summary.getBooksPerSecond()));
+
+        if (listener != null) {
+            listener.onFinished(summary);
+        }
+    }
+
+    /**
+     * Extract metadata and cover of one file, or null if it can't be imported
+     */
+    private Book extract(File file) {
+        String filePath = file.getAbsolutePath();
+        String extension = getFileExtension(filePath);
+
+        try {
+            System.out.println("→ Importing: " + file.getName());
+
+            Book book;
+            if (extension.equalsIgnoreCase("epub")) {
+                book = epubService.extractMetadata(filePath);
+            } else if (extension.equalsIgnoreCase("pdf")) {
+                book = pdfService.extractMetadata(filePath);
+            } else {
+                System.err.println("✗ Unsupported format: " + extension);
+                return null;
+            }
+
+            // Recorded so library folder rescans can skip unchanged files
+            book.setFileSize(file.length());
+            book.setFileModified(file.lastModified());
+            book.setFileHash(FileFingerprint.computeContent(file));
+            return book;
+        } catch (Exception e) {
+            System.err.println("✗ Error importing " + file.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Store the extracted books of a batch in one transaction. If the batch
+     * fails, books are retried one by one so a single bad row doesn't fail
+     * the rest. Returns the results that were stored.
+     */
+    private Set<Extracted> store(List<Extracted> batch) {
+        List<Extracted> extracted = new ArrayList<>(batch.size());
+        for (Extracted result : batch) {
+            if (result.book != null) {
+                extracted.add(result);
+            }
+        }
+
+        Set<Extracted> stored = new HashSet<>();
+        if (extracted.isEmpty()) {
+            return stored;
+        }
+
+        try {
+            storeBooks(extracted);
+            stored.addAll(extracted);
+        } catch (Exception e) {
+            System.err.println("⚠ Batch insert failed, retrying books one by one: " + e.getMessage());
+            for (Extracted result : extracted) {
+                try {
+                    storeBooks(List.of(result));
+                    stored.add(result);
+                } catch (Exception single) {
+                    System.err.println("✗ Database error importing " + result.file.getName() + ": " + single.getMessage());
+                }
+            }
+        }
+        return stored;
+    }
+
+    private void storeBooks(List<Extracted> extracted) throws SQLException {
+        List<Book> books = new ArrayList<>(extracted.size());
+        for (Extracted result : extracted) {
+            books.add(result.book);
+        }
+
+        List<Integer> ids = bookDAO.addBooks(books);
+        for (int i = 0; i < books.size(); i++) {
+            books.get(i).setId(ids.get(i));
+            System.out.println("✓ Book imported: " + books.get(i).getTitle() + " (ID: " + ids.get(i) + ")");
+            LibraryTextIndexer.getInstance().enqueue(books.get(i));
+        }
+    }
+
+    static String getFileExtension(String filePath) {
+        int lastDot = filePath.lastIndexOf('.');
+        if (lastDot > 0) {
+            return filePath.substring(lastDot + 1);
+        }
+        return "";
+    }
+}
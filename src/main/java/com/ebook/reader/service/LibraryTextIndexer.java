@@ -0,0 +1,143 @@
+package com.ebook.reader.service;
+
+import com.ebook.reader.dao.BookDAO;
+import com.ebook.reader.dao.BookTextDAO;
+import com.ebook.reader.dao.DatabaseManager;
+import com.ebook.reader.model.Book;
+import com.ebook.reader.util.HtmlTextExtractor;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Keeps the library-wide full-text index up to date in the background.
+ *
+ * On start every book whose file changed since it was indexed, or that was
+ * never indexed, is queued; imported books are queued as they are stored.
+ * Books are indexed one at a time on a low-priority thread. Removed books
+ * drop out of the index through a database trigger.
+ *
+ * The indexer writes through a database connection of its own. A book's
+ * text is replaced in one transaction, and on the shared connection that
+ * transaction would take in, and could roll back, whatever the user saves
+ * meanwhile.
+ */
+public class LibraryTextIndexer {
+
+    private static LibraryTextIndexer instance;
+
+    private final BookDAO bookDAO = new BookDAO();
+    // On the indexer's own connection, while the thread runs
+    private BookTextDAO bookTextDAO;
+    private final EpubService epubService = new EpubService();
+
+    private final LinkedBlockingQueue<Book> queue = new LinkedBlockingQueue<>();
+    private final Set<Integer> queuedIds = Collections.synchronizedSet(new HashSet<>());
+    private Thread thread;
+
+    private LibraryTextIndexer() {
+    }
+
+    public static synchronized LibraryTextIndexer getInstance() {
+        if (instance == null) {
+            instance = new LibraryTextIndexer();
+        }
+        return instance;
+    }
+
+    /**
+     * Start the indexing thread and queue books that need (re)indexing
+     */
+    public synchronized void start() {
+        if (thread != null) return;
+
+        thread = new Thread(this::run, "library-text-index");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * Queue a book to be indexed, e.g. after it was imported or its file changed
+     */
+    public void enqueue(Book book) {
+        if (book == null || book.getId() <= 0) return;
+        if (queuedIds.add(book.getId())) {
+            queue.add(book);
+        }
+    }
+
+    private void run() {
+        try (Connection connection = DatabaseManager.getInstance().openConnection()) {
+            bookTextDAO = new BookTextDAO(connection);
+            queueStaleBooks();
+
+            while (!Thread.currentThread().isInterrupted()) {
+                Book book = queue.take();
+                queuedIds.remove(book.getId());
+                indexBook(book);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            System.err.println("⚠ Full-text index unavailable: " + e.getMessage());
+        }
+    }
+
+    private void queueStaleBooks() {
+        try {
+            Map<Integer, String> indexed = bookTextDAO.getIndexedHashes();
+            int stale = 0;
+            for (Book book : bookDAO.getAllBooks()) {
+                if (!indexed.containsKey(book.getId())
+                        || !Objects.equals(indexed.get(book.getId()), book.getFileHash())) {
+                    enqueue(book);
+                    stale++;
+                }
+            }
+            System.out.println("→ Text index: " + indexed.size() + " book(s) indexed, " + stale + " queued");
+        } catch (SQLException e) {
+            System.err.println("⚠ Full-text index unavailable: " + e.getMessage());
+        }
+    }
+
+    private void indexBook(Book book) throws InterruptedException {
+        File file = new File(book.getFilePath());
+        if (book.isMissing() || !file.isFile()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            List<String> sections;
+            if ("EPUB".equalsIgnoreCase(book.getFileType())) {
+                sections = new ArrayList<>();
+                for (HtmlTextExtractor.Result chapter : epubService.extractChapterTexts(book.getFilePath())) {
+                    sections.add(chapter.text);
+                }
+            } else if ("PDF".equalsIgnoreCase(book.getFileType())) {
+                sections = PdfTextIndex.forFile(book.getFilePath()).awaitPageTexts();
+            } else {
+                return;
+            }
+
+            bookTextDAO.replaceBookText(book.getId(), book.getFileHash(), sections);
+            System.out.println("✓ Indexed text of " + book.getTitle() + " (" + sections.size() + " sections) in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("✗ Error indexing text of " + book.getTitle() + ": " + e.getMessage());
+        }
+    }
+}
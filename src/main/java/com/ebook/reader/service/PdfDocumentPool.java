@@ -0,0 +1,285 @@
+package com.ebook.reader.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared, reference-counted cache of parsed PDF documents.
+ *
+ * A document is parsed once and reused by every caller that acquires a
+ * session for the same file. Documents nobody holds a session for are closed
+ * after they have been idle for a while, and at most a few idle documents are
+ * kept at all. A document is reparsed when its file changes on disk.
+ *
+ * PDFBox documents are not thread-safe, so callers must synchronize on
+ * {@link Session#getLock()} while using the document.
+ */
+public class PdfDocumentPool {
+
+    private static final long IDLE_TIMEOUT_MILLIS = 30_000;
+    private static final long SWEEP_INTERVAL_MILLIS = 10_000;
+    private static final int MAX_IDLE_DOCUMENTS = 4;
+
+    private static PdfDocumentPool instance;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private ScheduledExecutorService sweeper;
+
+    private PdfDocumentPool() {
+    }
+
+    public static synchronized PdfDocumentPool getInstance() {
+        if (instance == null) {
+            instance = new PdfDocumentPool();
+        }
+        return instance;
+    }
+
+    /**
+     * A parsed document for one file, kept open for its sessions
+     */
+    private static class Entry {
+        final String path;
+        final long fileSize;
+        final long fileModified;
+        final Object lock = new Object();
+
+        PDDocument document;
+        PDFRenderer renderer;
+        int refCount = 0;
+        long lastReleased = System.currentTimeMillis();
+        boolean retired = false;
+
+        Entry(String path, long fileSize, long fileModified) {
+            this.path = path;
+            this.fileSize = fileSize;
+            this.fileModified = fileModified;
+        }
+
+        boolean matches(File file) {
+            return file.length() == fileSize && file.lastModified() == fileModified;
+        }
+
+        void ensureLoaded() throws IOException {
+            synchronized (lock) {
+                if (document == null) {
+                    long start = System.currentTimeMillis();
+                    document = Loader.loadPDF(new File(path));
+                    renderer = new PDFRenderer(document);
+                    System.out.println("✓ Opened PDF " + new File(path).getName() + " ("
+                            + document.getNumberOfPages() + " pages) in "
+                            + (System.currentTimeMillis() - start) + "ms");
+                }
+            }
+        }
+
+        void close() {
+            // Waits for a caller still using the document
+            synchronized (lock) {
+                if (document != null) {
+                    try {
+                        document.close();
+                    } catch (IOException e) {
+                        System.err.println("✗ Error closing PDF document: " + e.getMessage());
+                    }
+                    document = null;
+                    renderer = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * A caller's hold on a pooled document. Close it to release the hold;
+     * the document itself stays open for reuse.
+     */
+    public class Session implements AutoCloseable {
+        private final Entry entry;
+        private boolean released = false;
+
+        private Session(Entry entry) {
+            this.entry = entry;
+        }
+
+        public PDDocument getDocument() {
+            checkOpen();
+            return entry.document;
+        }
+
+        public PDFRenderer getRenderer() {
+            checkOpen();
+            return entry.renderer;
+        }
+
+        /**
+         * Lock to hold while using the document or renderer
+         */
+        public Object getLock() {
+            return entry.lock;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (released) return;
+                released = true;
+            }
+            release(entry);
+        }
+
+        private synchronized void checkOpen() {
+            if (released) {
+                throw new IllegalStateException("PDF session already closed: " + entry.path);
+            }
+        }
+    }
+
+    /**
+     * Get a session for a PDF, parsing it only if it isn't open already
+     */
+    public Session acquire(String filePath) throws IOException {
+        File file = new File(filePath);
+        String key = file.getAbsolutePath();
+        Entry entry;
+
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && !entry.matches(file)) {
+                System.out.println("→ PDF changed on disk, reopening: " + file.getName());
+                retire(entry);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(key, file.length(), file.lastModified());
+                entries.put(key, entry);
+            }
+            entry.refCount++;
+            startSweeper();
+        }
+
+        try {
+            entry.ensureLoaded();
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                if (entries.get(key) == entry) {
+                    entries.remove(key);
+                }
+                entry.retired = true;
+            }
+            release(entry);
+            throw e;
+        }
+
+        return new Session(entry);
+    }
+
+    private void release(Entry entry) {
+        boolean closeNow;
+        synchronized (this) {
+            entry.refCount--;
+            entry.lastReleased = System.currentTimeMillis();
+            closeNow = entry.refCount == 0 && entry.retired;
+        }
+
+        if (closeNow) {
+            entry.close();
+        } else {
+            evictIdle(false);
+        }
+    }
+
+    /**
+     * Drop an entry from the pool; it is closed once its last session is released
+     */
+    private void retire(Entry entry) {
+        entries.remove(entry.path);
+        entry.retired = true;
+        if (entry.refCount == 0) {
+            entry.close();
+        }
+    }
+
+    /**
+     * Close documents that have been idle too long, and the least recently
+     * released ones beyond the idle limit
+     */
+    private void evictIdle(boolean expireOld) {
+        List<Entry> toClose = new ArrayList<>();
+
+        synchronized (this) {
+            List<Entry> idle = new ArrayList<>();
+            for (Entry entry : entries.values()) {
+                if (entry.refCount == 0) {
+                    idle.add(entry);
+                }
+            }
+            idle.sort(Comparator.comparingLong(e -> e.lastReleased));
+
+            long now = System.currentTimeMillis();
+            int excess = idle.size() - MAX_IDLE_DOCUMENTS;
+            for (Entry entry : idle) {
+                boolean expired = expireOld && now - entry.lastReleased >= IDLE_TIMEOUT_MILLIS;
+                if (excess > 0 || expired) {
+                    entries.remove(entry.path);
+                    entry.retired = true;
+                    toClose.add(entry);
+                    excess--;
+                }
+            }
+        }
+
+        for (Entry entry : toClose) {
+            entry.close();
+        }
+    }
+
+    private void startSweeper() {
+        if (sweeper != null) return;
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pdf-document-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(() -> evictIdle(true),
+                SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Number of documents currently open in the pool
+     */
+    public synchronized int getOpenDocumentCount() {
+        return entries.size();
+    }
+
+    /**
+     * Close every pooled document, e.g. when the application exits
+     */
+    public void closeAll() {
+        List<Entry> toClose;
+        synchronized (this) {
+            toClose = new ArrayList<>(entries.values());
+            entries.clear();
+            for (Entry entry : toClose) {
+                entry.retired = true;
+            }
+            if (sweeper != null) {
+                sweeper.shutdownNow();
+                sweeper = null;
+            }
+        }
+
+        for (Entry entry : toClose) {
+            entry.close();
+        }
+        System.out.println("✓ Closed " + toClose.size() + " pooled PDF document(s)");
+    }
+}
@@ -0,0 +1,105 @@
+package com.ebook.reader.service;
+
+import com.ebook.reader.util.DiskCache;
+import com.ebook.reader.util.FileFingerprint;
+import javafx.scene.image.Image;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Rendered PDF pages kept on disk between sessions, as PNG files under
+ * ~/.ebook-reader/cache/pdf/&lt;book fingerprint&gt;/.
+ *
+ * Reading a page back takes a fraction of the time it takes to render it,
+ * especially for scanned books whose JBIG2 or JPEG 2000 images are slow to
+ * decode. Pages are keyed by page index and DPI; PDF pages are rendered the
+ * same in every theme, so the theme isn't part of the key.
+ */
+public class PdfPageDiskCache {
+
+    private static final DiskCache PAGE_CACHE = new DiskCache("pdf", 1024L * 1024 * 1024);
+
+    // Lighter deflate than the default: encodes about twice as fast for a few percent more bytes
+    private static final float PNG_COMPRESSION_QUALITY = 0.75f;
+
+    private final String fingerprint;
+
+    private PdfPageDiskCache(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Cache for a PDF file; computes the file's fingerprint, so don't call it
+     * on the FX thread
+     */
+    public static PdfPageDiskCache forFile(String filePath) throws IOException {
+        return new PdfPageDiskCache(FileFingerprint.compute(new File(filePath)));
+    }
+
+    /**
+     * Read a stored page, or null if it isn't stored
+     */
+    public Image load(int pageIndex, float dpi) {
+        byte[] data = PAGE_CACHE.readBytes(fingerprint, entryName(pageIndex, dpi));
+        if (data == null) {
+            return null;
+        }
+
+        Image image = new Image(new ByteArrayInputStream(data));
+        if (image.isError()) {
+            System.err.println("⚠ Unreadable cached PDF page " + (pageIndex + 1) + ", rendering it again");
+            return null;
+        }
+        return image;
+    }
+
+    public boolean contains(int pageIndex, float dpi) {
+        return PAGE_CACHE.contains(fingerprint, entryName(pageIndex, dpi));
+    }
+
+    /**
+     * Store a page rendered onto an opaque INT_ARGB_PRE canvas
+     */
+    public void store(int pageIndex, float dpi, BufferedImage canvas) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+            try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(PNG_COMPRESSION_QUALITY);
+                writer.setOutput(stream);
+                writer.write(null, new IIOImage(asRgb(canvas), null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            PAGE_CACHE.writeBytes(fingerprint, entryName(pageIndex, dpi), out.toByteArray());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠ Could not store PDF page " + (pageIndex + 1) + " on disk: " + e.getMessage());
+        }
+    }
+
+    /**
+     * View an opaque premultiplied canvas as plain RGB without copying it;
+     * opaque pixels are the same in both, and RGB ignores the alpha byte
+     */
+    private static BufferedImage asRgb(BufferedImage canvas) {
+        DirectColorModel rgb = new DirectColorModel(24, 0xff0000, 0x00ff00, 0x0000ff);
+        WritableRaster raster = Raster.createPackedRaster(canvas.getRaster().getDataBuffer(),
+                canvas.getWidth(), canvas.getHeight(), canvas.getWidth(), rgb.getMasks(), null);
+        return new BufferedImage(rgb, raster, false, null);
+    }
+
+    private static String entryName(int pageIndex, float dpi) {
+        return "page-" + pageIndex + "@" + Math.round(dpi) + ".png";
+    }
+}
@@ -0,0 +1,151 @@
+package com.ebook.reader.service;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.*;
+
+/**
+ * Reusable pixel buffers for rendering PDF pages.
+ *
+ * Pages are drawn onto an INT_ARGB_PRE canvas, whose int array is copied
+ * straight into a JavaFX WritableImage in the matching pixel format. Both
+ * are pooled by size: canvases are returned as soon as the copy is done,
+ * and images come back once the page cache evicts them and nothing shows
+ * them any more. When reading through a book with pages of one size, a page
+ * turn then allocates next to nothing.
+ *
+ * The pool holds at most a fixed number of bytes; older buffers are dropped
+ * beyond that. All methods are thread-safe.
+ */
+public class PdfRasterPool {
+
+    private static final long MAX_POOLED_BYTES = 96L * 1024 * 1024;
+
+    // Pooled buffers by size, least recently returned first
+    private final LinkedHashMap<Object, BufferedImage> canvases = new LinkedHashMap<>();
+    private final LinkedHashMap<Object, WritableImage> images = new LinkedHashMap<>();
+    private long pooledBytes = 0;
+
+    private long canvasesReused = 0;
+    private long canvasesAllocated = 0;
+    private long imagesReused = 0;
+    private long imagesAllocated = 0;
+
+    /**
+     * Pool key; several buffers of one size each get their own key
+     */
+    private static final class Slot {
+        final int width;
+        final int height;
+
+        Slot(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Get a canvas of the given size; its contents are undefined
+     */
+    public BufferedImage borrowCanvas(int width, int height) {
+        synchronized (this) {
+            BufferedImage canvas = take(canvases, width, height);
+            if (canvas != null) {
+                canvasesReused++;
+                return canvas;
+            }
+            canvasesAllocated++;
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    public synchronized void returnCanvas(BufferedImage canvas) {
+        if (canvas.getType() != BufferedImage.TYPE_INT_ARGB_PRE) return;
+        put(canvases, canvas, canvas.getWidth(), canvas.getHeight());
+    }
+
+    /**
+     * Copy a canvas into a pooled or new JavaFX image of the same size
+     */
+    public WritableImage toFxImage(BufferedImage canvas) {
+        int width = canvas.getWidth();
+        int height = canvas.getHeight();
+
+        WritableImage image;
+        synchronized (this) {
+            image = take(images, width, height);
+            if (image != null) {
+                imagesReused++;
+            } else {
+                imagesAllocated++;
+            }
+        }
+        if (image == null) {
+            image = new WritableImage(width, height);
+        }
+
+        int[] pixels = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+        image.getPixelWriter().setPixels(0, 0, width, height,
+                PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        return image;
+    }
+
+    /**
+     * Give back an image that nothing displays or caches any more
+     */
+    public synchronized void recycle(Image image) {
+        if (!(image instanceof WritableImage)) return;
+        put(images, (WritableImage) image, (int) image.getWidth(), (int) image.getHeight());
+    }
+
+    public synchronized void clear() {
+        canvases.clear();
+        images.clear();
+        pooledBytes = 0;
+    }
+
+    public synchronized String getStats() {
+        return String.format("canvases %d reused / %d allocated, images %d reused / %d allocated, %.1f MB pooled",
+                canvasesReused, canvasesAllocated, imagesReused, imagesAllocated, pooledBytes / 1048576.0);
+    }
+
+    // Caller holds the pool lock
+    private <T> T take(LinkedHashMap<Object, T> pool, int width, int height) {
+        Iterator<Map.Entry<Object, T>> it = pool.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Object, T> entry = it.next();
+            Slot slot = (Slot) entry.getKey();
+            if (slot.width == width && slot.height == height) {
+                it.remove();
+                pooledBytes -= sizeOf(width, height);
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    // Caller holds the pool lock
+    private <T> void put(LinkedHashMap<Object, T> pool, T buffer, int width, int height) {
+        long bytes = sizeOf(width, height);
+        if (bytes > MAX_POOLED_BYTES) return;
+
+        pool.put(new Slot(width, height), buffer);
+        pooledBytes += bytes;
+        while (pooledBytes > MAX_POOLED_BYTES) {
+            // Every render needs a canvas, so drop recycled images first, oldest first
+            LinkedHashMap<Object, ?> from = !images.isEmpty() ? images : canvases;
+            Iterator<? extends Map.Entry<Object, ?>> it = from.entrySet().iterator();
+            Slot eldest = (Slot) it.next().getKey();
+            it.remove();
+            pooledBytes -= sizeOf(eldest.width, eldest.height);
+        }
+    }
+
+    private static long sizeOf(int width, int height) {
+        return (long) width * height * 4;
+    }
+}
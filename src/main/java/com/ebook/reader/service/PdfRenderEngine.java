@@ -0,0 +1,207 @@
+package com.ebook.reader.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Renders pages of one PDF on several threads at once.
+ *
+ * A PDFBox document can only be used by one thread at a time, so instead of
+ * sharing one document behind a lock, every concurrent render gets its own
+ * handle: a separately parsed document over the same memory-mapped file.
+ * The file is mapped once and each handle reads it through its own
+ * duplicate of the buffer, so handles share the file's pages in memory but
+ * not their parse state. Handles are created on demand, up to a limit, and
+ * reused.
+ *
+ * The mapping is released by the garbage collector once no handle uses it.
+ * Files too large to map are read through a buffered file per handle.
+ */
+public class PdfRenderEngine implements AutoCloseable {
+
+    // Favour speed for drafts; text stays antialiased so it is still legible
+    private static final RenderingHints DRAFT_HINTS = new RenderingHints(null);
+
+    static {
+        DRAFT_HINTS.put(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        DRAFT_HINTS.put(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        DRAFT_HINTS.put(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        DRAFT_HINTS.put(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    }
+
+    private final String filePath;
+    private final int maxHandles;
+    // Null when the file couldn't be mapped
+    private final ByteBuffer mapped;
+
+    private final Deque<Handle> idle = new ArrayDeque<>();
+    private int openHandles = 0;
+    private boolean closed = false;
+
+    /**
+     * A parsed copy of the document for one thread at a time
+     */
+    private static class Handle {
+        final PDDocument document;
+        final PDFRenderer renderer;
+
+        Handle(PDDocument document) {
+            this.document = document;
+            this.renderer = new PDFRenderer(document);
+        }
+
+        void close() {
+            try {
+                document.close();
+            } catch (IOException e) {
+                System.err.println("✗ Error closing PDF render handle: " + e.getMessage());
+            }
+        }
+    }
+
+    public PdfRenderEngine(String filePath, int maxHandles) {
+        this.filePath = filePath;
+        this.maxHandles = Math.max(1, maxHandles);
+
+        ByteBuffer buffer = null;
+        try (FileChannel channel = FileChannel.open(new File(filePath).toPath(), StandardOpenOption.READ)) {
+            if (channel.size() <= Integer.MAX_VALUE) {
+                // The mapping stays valid after the channel is closed
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } catch (IOException e) {
+            System.out.println("⚠ Not memory-mapping " + new File(filePath).getName() + ": " + e.getMessage());
+        }
+        this.mapped = buffer;
+    }
+
+    /**
+     * Render a whole page; see {@link PDFRenderer#renderImage(int, float)}
+     */
+    public BufferedImage renderImage(int pageIndex, float scale) throws IOException {
+        Handle handle = borrow();
+        try {
+            return handle.renderer.renderImage(pageIndex, scale);
+        } finally {
+            release(handle);
+        }
+    }
+
+    /**
+     * Draw a page onto a graphics context; see
+     * {@link PDFRenderer#renderPageToGraphics(int, Graphics2D, float)}
+     */
+    public void renderToGraphics(int pageIndex, Graphics2D graphics, float scale) throws IOException {
+        renderToGraphics(pageIndex, graphics, scale, false);
+    }
+
+    /**
+     * Draw a page onto a graphics context. A draft is drawn with speed over
+     * quality rendering hints and subsampled images.
+     */
+    public void renderToGraphics(int pageIndex, Graphics2D graphics, float scale, boolean draft) throws IOException {
+        Handle handle = borrow();
+        try {
+            // The handle is ours alone until released, so its settings can be changed per render
+            handle.renderer.setRenderingHints(draft ? DRAFT_HINTS : null);
+            handle.renderer.setSubsamplingAllowed(draft);
+            handle.renderer.renderPageToGraphics(pageIndex, graphics, scale);
+        } finally {
+            release(handle);
+        }
+    }
+
+    /**
+     * Take an idle handle, open a new one if under the limit, or wait for one
+     */
+    private Handle borrow() throws IOException {
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new IOException("PDF render engine is closed");
+                }
+                if (!idle.isEmpty()) {
+                    return idle.pop();
+                }
+                if (openHandles < maxHandles) {
+                    openHandles++;
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for a PDF render handle", e);
+                }
+            }
+        }
+
+        // Parse outside the lock so other threads can keep rendering
+        try {
+            RandomAccessRead source = mapped != null
+                    ? new RandomAccessReadBuffer(mapped.duplicate())
+                    : new RandomAccessReadBufferedFile(filePath);
+            return new Handle(Loader.loadPDF(source));
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                openHandles--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    private void release(Handle handle) {
+        synchronized (this) {
+            if (!closed) {
+                idle.push(handle);
+                notifyAll();
+                return;
+            }
+            openHandles--;
+        }
+        handle.close();
+    }
+
+    /**
+     * Number of document handles currently open
+     */
+    public synchronized int getOpenHandleCount() {
+        return openHandles;
+    }
+
+    /**
+     * Close the idle handles now and the busy ones when their render ends
+     */
+    @Override
+    public void close() {
+        Deque<Handle> toClose;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+            openHandles -= toClose.size();
+            notifyAll();
+        }
+
+        for (Handle handle : toClose) {
+            handle.close();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.ebook.reader.service;
+
+import javafx.scene.image.Image;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs page renders of one PDF on a small pool of worker threads, most
+ * important first.
+ *
+ * Requests are queued by priority (a draft of the visible page, the visible
+ * page itself, then the next page, the previous one and prefetches), and
+ * newer requests of the same priority go first. A page that is already
+ * queued or rendering is never rendered twice; asking for it again raises
+ * its priority if needed and returns the same future. Drafts are tracked
+ * separately from full renders of the same page.
+ *
+ * Every navigation starts a new generation: queued requests of older
+ * generations are cancelled, so pages the user skipped past cost nothing.
+ * A render that has already started is allowed to finish.
+ */
+public class PdfRenderScheduler {
+
+    /** Request priorities, most urgent first */
+    public enum Priority {
+        DRAFT, VISIBLE, NEXT, PREVIOUS, PREFETCH
+    }
+
+    private final PriorityQueue<Job> queue = new PriorityQueue<>();
+    // Queued or running jobs by key; see jobKey
+    private final Map<Long, Job> jobs = new HashMap<>();
+
+    private long generation = 0;
+    private long sequence = 0;
+    private boolean closed = false;
+
+    private long rendered = 0;
+    private long cancelled = 0;
+
+    private static final class Job implements Comparable<Job> {
+        final long key;
+        final Callable<Image> render;
+        final CompletableFuture<Image> future = new CompletableFuture<>();
+        Priority priority;
+        BooleanSupplier stillWanted;
+        long generation;
+        long sequence;
+
+        Job(long key, Callable<Image> render) {
+            this.key = key;
+            this.render = render;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(other.sequence, sequence);
+        }
+    }
+
+    public PdfRenderScheduler(String name, int workerCount) {
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, name + "-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Start a new generation, cancelling every queued request made before it.
+     * Returns the new generation.
+     */
+    public synchronized long nextGeneration() {
+        generation++;
+        List<Job> stale = new ArrayList<>();
+        for (Job job : queue) {
+            if (job.generation < generation) {
+                stale.add(job);
+            }
+        }
+        // Cancel after removing, as the futures' callbacks may submit new requests
+        queue.removeAll(stale);
+        for (Job job : stale) {
+            jobs.remove(job.key);
+            cancel(job);
+        }
+        return generation;
+    }
+
+    /**
+     * Whether no newer generation has been started since the given one
+     */
+    public synchronized boolean isCurrent(long generation) {
+        return this.generation == generation;
+    }
+
+    public CompletableFuture<Image> submit(int pageIndex, Priority priority, Callable<Image> render) {
+        return submit(pageIndex, priority, () -> true, render);
+    }
+
+    /**
+     * Queue a page render. stillWanted is checked when a worker picks the
+     * request up; if it returns false the request is cancelled instead.
+     * The returned future completes on a worker thread, and is cancelled
+     * if the request is dropped.
+     */
+    public synchronized CompletableFuture<Image> submit(int pageIndex, Priority priority,
+                                                        BooleanSupplier stillWanted, Callable<Image> render) {
+        long key = jobKey(pageIndex, priority);
+        Job job = jobs.get(key);
+        if (job != null) {
+            if (queue.contains(job)) {
+                // Asked for again: keep it alive and move it up if it got more urgent
+                queue.remove(job);
+                if (priority.compareTo(job.priority) < 0) {
+                    job.priority = priority;
+                }
+                job.stillWanted = stillWanted;
+                job.generation = generation;
+                job.sequence = sequence++;
+                queue.add(job);
+            }
+            return job.future;
+        }
+
+        job = new Job(key, render);
+        if (closed) {
+            job.future.cancel(false);
+            return job.future;
+        }
+        job.priority = priority;
+        job.stillWanted = stillWanted;
+        job.generation = generation;
+        job.sequence = sequence++;
+        jobs.put(key, job);
+        queue.add(job);
+        notify();
+        return job.future;
+    }
+
+    private void runWorker() {
+        while (true) {
+            Job job;
+            synchronized (this) {
+                while (!closed && queue.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) return;
+
+                job = queue.poll();
+                if (!job.stillWanted.getAsBoolean()) {
+                    jobs.remove(job.key);
+                    cancel(job);
+                    continue;
+                }
+            }
+
+            Image image = null;
+            Throwable error = null;
+            try {
+                image = job.render.call();
+            } catch (Throwable e) {
+                error = e;
+            }
+
+            synchronized (this) {
+                jobs.remove(job.key, job);
+                rendered++;
+            }
+            if (error != null) {
+                job.future.completeExceptionally(error);
+            } else {
+                job.future.complete(image);
+            }
+        }
+    }
+
+    private static long jobKey(int pageIndex, Priority priority) {
+        return pageIndex * 2L + (priority == Priority.DRAFT ? 1 : 0);
+    }
+
+    // Caller holds the scheduler lock
+    private void cancel(Job job) {
+        cancelled++;
+        job.future.cancel(false);
+    }
+
+    /**
+     * Cancel everything queued and stop the workers. Renders in progress
+     * finish, but their results are still delivered.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            List<Job> queued = new ArrayList<>(queue);
+            queue.clear();
+            for (Job job : queued) {
+                jobs.remove(job.key);
+                cancel(job);
+            }
+            notifyAll();
+            System.out.println("→ PDF renders: " + rendered + " rendered, " + cancelled + " cancelled");
+        }
+    }
+}
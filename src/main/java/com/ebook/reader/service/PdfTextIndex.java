@@ -0,0 +1,308 @@
+package com.ebook.reader.service;
+
+import com.ebook.reader.util.DiskCache;
+import com.ebook.reader.util.FileFingerprint;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Per-page text of a PDF, extracted once for whole-book search.
+ *
+ * The first request for a PDF starts extracting its pages on a background
+ * thread; searches run against the pages extracted so far and wait for the
+ * rest, so hits stream in while indexing is still going. A finished index is
+ * stored gzipped in the disk cache under the file's fingerprint, and the most
+ * recently used indexes are kept in memory.
+ */
+public class PdfTextIndex {
+
+    // Shared with EpubTextIndex, so one size limit covers both kinds of index
+    static final DiskCache INDEX_CACHE = new DiskCache("search", 256L * 1024 * 1024);
+    private static final int INDEX_VERSION = 1;
+    private static final int MAX_OPEN_INDEXES = 4;
+    private static final int SNIPPET_CONTEXT = 50;
+
+    private static final Map<String, PdfTextIndex> OPEN_INDEXES =
+            new LinkedHashMap<String, PdfTextIndex>(8, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PdfTextIndex> eldest) {
+                    return size() > MAX_OPEN_INDEXES;
+                }
+            };
+
+    private final String filePath;
+    private final String fingerprint;
+    private final String[] pageTexts;
+    private int indexedPages = 0;
+    private boolean failed = false;
+
+    /**
+     * One occurrence of the query
+     */
+    public static class SearchHit {
+        public final int pageIndex;
+        public final int offset;
+        public final String snippet;
+
+        public SearchHit(int pageIndex, int offset, String snippet) {
+            this.pageIndex = pageIndex;
+            this.offset = offset;
+            this.snippet = snippet;
+        }
+    }
+
+    private PdfTextIndex(String filePath, String fingerprint, String[] pageTexts, int indexedPages) {
+        this.filePath = filePath;
+        this.fingerprint = fingerprint;
+        this.pageTexts = pageTexts;
+        this.indexedPages = indexedPages;
+    }
+
+    /**
+     * Get the index of a PDF, from memory or disk, or start building it in
+     * the background. Does file I/O, so don't call it on the FX thread.
+     */
+    public static PdfTextIndex forFile(String filePath) throws IOException {
+        String fingerprint = FileFingerprint.compute(new File(filePath));
+
+        synchronized (OPEN_INDEXES) {
+            PdfTextIndex index = OPEN_INDEXES.get(fingerprint);
+            if (index != null && !index.hasFailed()) {
+                return index;
+            }
+        }
+
+        PdfTextIndex index = readFromDisk(filePath, fingerprint);
+        boolean build = index == null;
+        if (build) {
+            int pageCount;
+            try (PdfDocumentPool.Session session = PdfDocumentPool.getInstance().acquire(filePath)) {
+                synchronized (session.getLock()) {
+                    pageCount = session.getDocument().getNumberOfPages();
+                }
+            }
+            index = new PdfTextIndex(filePath, fingerprint, new String[pageCount], 0);
+        }
+
+        synchronized (OPEN_INDEXES) {
+            // Another caller may have opened it meanwhile
+            PdfTextIndex existing = OPEN_INDEXES.get(fingerprint);
+            if (existing != null && !existing.hasFailed()) {
+                return existing;
+            }
+            OPEN_INDEXES.put(fingerprint, index);
+        }
+
+        if (build) {
+            index.startBuilding();
+        }
+        return index;
+    }
+
+    public int getPageCount() {
+        return pageTexts.length;
+    }
+
+    public synchronized int getIndexedPages() {
+        return indexedPages;
+    }
+
+    public synchronized boolean isComplete() {
+        return indexedPages == pageTexts.length;
+    }
+
+    private synchronized boolean hasFailed() {
+        return failed;
+    }
+
+    private void startBuilding() {
+        Thread thread = new Thread(this::build, "pdf-text-index");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Extract the pages one at a time, so page renders can take the document
+     * lock in between
+     */
+    private void build() {
+        long start = System.currentTimeMillis();
+        System.out.println("→ Indexing text of " + new File(filePath).getName() + " (" + pageTexts.length + " pages)");
+
+        try (PdfDocumentPool.Session session = PdfDocumentPool.getInstance().acquire(filePath)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+
+            for (int i = 0; i < pageTexts.length; i++) {
+                String text;
+                synchronized (session.getLock()) {
+                    stripper.setStartPage(i + 1);
+                    stripper.setEndPage(i + 1);
+                    text = stripper.getText(session.getDocument());
+                }
+
+                synchronized (this) {
+                    pageTexts[i] = text;
+                    indexedPages = i + 1;
+                    notifyAll();
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("✗ Error indexing PDF text: " + e.getMessage());
+            synchronized (this) {
+                failed = true;
+                notifyAll();
+            }
+            return;
+        }
+
+        System.out.println("✓ Indexed " + pageTexts.length + " pages in " + (System.currentTimeMillis() - start) + "ms");
+        writeToDisk();
+    }
+
+    /**
+     * Find every case-insensitive occurrence of the query, in page order.
+     * Hits are passed to onHit as they are found, on the calling thread;
+     * pages that are not indexed yet are waited for. The search stops as
+     * soon as cancelled returns true, also in the middle of a page.
+     */
+    public void search(String query, Consumer<SearchHit> onHit, BooleanSupplier cancelled) throws InterruptedException {
+        if (query == null || query.isBlank()) {
+            return;
+        }
+        char[] needle = foldCase(query.trim());
+
+        for (int page = 0; page < pageTexts.length; page++) {
+            String text;
+            synchronized (this) {
+                while (page >= indexedPages && !failed) {
+                    wait(200);
+                    if (cancelled.getAsBoolean()) return;
+                }
+                if (page >= indexedPages) {
+                    return; // indexing failed
+                }
+                text = pageTexts[page];
+            }
+
+            if (cancelled.getAsBoolean()) return;
+            if (text == null || text.length() < needle.length) continue;
+
+            char[] haystack = foldCase(text);
+            for (int offset = indexOf(haystack, needle, 0); offset >= 0;
+                 offset = indexOf(haystack, needle, offset + needle.length)) {
+                onHit.accept(new SearchHit(page, offset, snippet(text, offset, needle.length)));
+                if (cancelled.getAsBoolean()) return;
+            }
+        }
+    }
+
+    /**
+     * Text of every page, waiting for indexing to finish. Throws if indexing failed.
+     */
+    public List<String> awaitPageTexts() throws InterruptedException, IOException {
+        synchronized (this) {
+            while (indexedPages < pageTexts.length && !failed) {
+                wait();
+            }
+            if (indexedPages < pageTexts.length) {
+                throw new IOException("Text extraction failed for " + new File(filePath).getName());
+            }
+            return Arrays.asList(pageTexts.clone());
+        }
+    }
+
+    /**
+     * Plain text of a page, or null if it isn't indexed yet
+     */
+    public synchronized String getPageText(int pageIndex) {
+        return pageIndex < indexedPages ? pageTexts[pageIndex] : null;
+    }
+
+    /**
+     * Lower-case copy with the same length, so offsets stay valid
+     */
+    static char[] foldCase(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return chars;
+    }
+
+    static int indexOf(char[] haystack, char[] needle, int from) {
+        int last = haystack.length - needle.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            if (haystack[i] != needle[0]) continue;
+            for (int j = 1; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Text around a match on a single line, with ellipses where it was cut
+     */
+    static String snippet(String text, int offset, int length) {
+        int start = Math.max(0, offset - SNIPPET_CONTEXT);
+        int end = Math.min(text.length(), offset + length + SNIPPET_CONTEXT);
+
+        String snippet = text.substring(start, end).replaceAll("\\s+", " ").trim();
+        return (start > 0 ? "…" : "") + snippet + (end < text.length() ? "…" : "");
+    }
+
+    private static PdfTextIndex readFromDisk(String filePath, String fingerprint) {
+        byte[] data = INDEX_CACHE.readBytes(fingerprint, cacheName());
+        if (data == null) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)))) {
+            int pageCount = in.readInt();
+            String[] pages = new String[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                pages[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            System.out.println("✓ Loaded text index of " + new File(filePath).getName() + " from cache");
+            return new PdfTextIndex(filePath, fingerprint, pages, pageCount);
+        } catch (IOException e) {
+            System.err.println("⚠ Discarding unreadable text index: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(pageTexts.length);
+            for (String page : pageTexts) {
+                byte[] encoded = (page != null ? page : "").getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ Could not store text index: " + e.getMessage());
+            return;
+        }
+        INDEX_CACHE.writeBytes(fingerprint, cacheName(), bytes.toByteArray());
+    }
+
+    private static String cacheName() {
+        return "pdf-text.v" + INDEX_VERSION + ".gz";
+    }
+}
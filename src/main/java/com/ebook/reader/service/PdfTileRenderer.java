@@ -0,0 +1,422 @@
+package com.ebook.reader.service;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Renders pages of an open PDF, whole or as fixed-size tiles.
+ *
+ * Whole pages are rendered at a capped pixel count, so a large-format page
+ * (a map or blueprint) costs no more memory than a big book page. Zooming
+ * in past that resolution is served by tiles: square pieces of the page
+ * rasterized at one of a fixed set of scale levels, so only the visible part
+ * of a zoomed page is ever rendered. Tiles are cached in a least recently
+ * used cache with a byte budget.
+ *
+ * With a disk cache attached, whole pages are read from disk when stored
+ * there, and pages that were slow to render are stored in the background.
+ *
+ * Pages are read from the caller's document session, which closing the
+ * renderer doesn't close; rasterizing goes through a render engine, so
+ * pages and tiles can be rendered on several threads at once. The renderer
+ * takes over the engine and closes it.
+ */
+public class PdfTileRenderer {
+
+    /** Tile edge length in pixels */
+    public static final int TILE_SIZE = 512;
+
+    private static final long TILE_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final long MAX_PAGE_PIXELS = 8L * 1024 * 1024;
+
+    // Reading a stored page back takes a few tens of ms, so only pages slower than this are worth storing
+    private static final long MIN_RENDER_MILLIS_TO_STORE = 150;
+    // Page copies waiting to be written hold memory, so skip storing while this many are queued
+    private static final int MAX_PENDING_STORES = 4;
+
+    private final PdfDocumentPool.Session session;
+    private final PdfRenderEngine engine;
+    private final PdfRasterPool rasters = new PdfRasterPool();
+    private final ExecutorService executor;
+    private final ExecutorService storeExecutor;
+    private final AtomicInteger pendingStores = new AtomicInteger();
+    private volatile PdfPageDiskCache diskCache;
+
+    private final LinkedHashMap<TileKey, Image> tileCache = new LinkedHashMap<>(64, 0.75f, true);
+    private final Set<TileKey> pending = new HashSet<>();
+    private long cachedBytes = 0;
+
+    // Page size in points with the page rotation applied, by page index
+    private final Map<Integer, float[]> pageSizes = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Identifies one tile: page, scale level and tile column/row
+     */
+    public static final class TileKey {
+        public final int pageIndex;
+        public final int level;
+        public final int column;
+        public final int row;
+
+        public TileKey(int pageIndex, int level, int column, int row) {
+            this.pageIndex = pageIndex;
+            this.level = level;
+            this.column = column;
+            this.row = row;
+        }
+
+        /** Pixels per point the tile is rendered at */
+        public float getScale() {
+            return levelScale(level);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileKey)) return false;
+            TileKey other = (TileKey) o;
+            return pageIndex == other.pageIndex && level == other.level
+                    && column == other.column && row == other.row;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pageIndex, level, column, row);
+        }
+    }
+
+    public PdfTileRenderer(PdfDocumentPool.Session session, PdfRenderEngine engine) {
+        this.session = session;
+        this.engine = engine;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "pdf-tile-render");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.storeExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "pdf-page-store");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Read whole pages from, and store slow ones in, the given disk cache
+     */
+    public void setDiskCache(PdfPageDiskCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * Pixels per point of a scale level; levels are half an octave apart
+     */
+    public static float levelScale(int level) {
+        return (float) Math.pow(2, level / 2.0);
+    }
+
+    /**
+     * Smallest level that renders at least the given pixels per point
+     */
+    public static int levelFor(double scale) {
+        return (int) Math.ceil(2 * Math.log(scale) / Math.log(2) - 1e-6);
+    }
+
+    /**
+     * Size of a page in points as displayed, i.e. with its rotation applied
+     */
+    public float[] getPageSize(int pageIndex) {
+        float[] size = pageSizes.get(pageIndex);
+        if (size == null) {
+            synchronized (session.getLock()) {
+                size = readPageSize(pageIndex);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Page size if it is already known, without touching the document
+     */
+    public float[] getKnownPageSize(int pageIndex) {
+        return pageSizes.get(pageIndex);
+    }
+
+    /**
+     * Read the size of every page in one pass over the page tree, which is
+     * much faster than looking pages up one by one. Returns the sizes by
+     * page index.
+     */
+    public List<float[]> loadAllPageSizes() {
+        List<float[]> sizes = new ArrayList<>();
+        synchronized (session.getLock()) {
+            for (PDPage page : session.getDocument().getPages()) {
+                float[] size = displaySize(page);
+                pageSizes.put(sizes.size(), size);
+                sizes.add(size);
+            }
+        }
+        return sizes;
+    }
+
+    // Caller holds the document lock
+    private float[] readPageSize(int pageIndex) {
+        float[] size = displaySize(session.getDocument().getPage(pageIndex));
+        pageSizes.put(pageIndex, size);
+        return size;
+    }
+
+    private static float[] displaySize(PDPage page) {
+        PDRectangle box = page.getCropBox();
+        int rotation = page.getRotation();
+        return rotation == 90 || rotation == 270
+                ? new float[]{box.getHeight(), box.getWidth()}
+                : new float[]{box.getWidth(), box.getHeight()};
+    }
+
+    /**
+     * Render a whole page at the given DPI, or lower if that would exceed
+     * the page pixel cap. The image may be a recycled one; see {@link #recycle}.
+     */
+    public Image renderPage(int pageIndex, float dpi) throws IOException {
+        return renderWholePage(pageIndex, dpi, false);
+    }
+
+    /**
+     * Render a whole page quickly at a low DPI, trading quality for speed,
+     * to show until the full render is ready
+     */
+    public Image renderDraft(int pageIndex, float dpi) throws IOException {
+        return renderWholePage(pageIndex, dpi, true);
+    }
+
+    private Image renderWholePage(int pageIndex, float dpi, boolean draft) throws IOException {
+        long start = System.currentTimeMillis();
+        long allocatedBefore = allocatedBytes();
+
+        PdfPageDiskCache disk = draft ? null : diskCache;
+        if (disk != null) {
+            Image stored = disk.load(pageIndex, dpi);
+            if (stored != null) {
+                System.out.println("✓ Read PDF page " + (pageIndex + 1) + " from disk cache in "
+                        + (System.currentTimeMillis() - start) + "ms");
+                return stored;
+            }
+        }
+
+        float[] size = getPageSize(pageIndex);
+        float scale = dpi / 72f;
+        double pixels = (double) size[0] * scale * size[1] * scale;
+        if (pixels > MAX_PAGE_PIXELS) {
+            scale *= (float) Math.sqrt(MAX_PAGE_PIXELS / pixels);
+        }
+        // Same pixel size as PDFRenderer.renderImage
+        int width = (int) Math.max(Math.floor(size[0] * scale), 1);
+        int height = (int) Math.max(Math.floor(size[1] * scale), 1);
+
+        Image image = rasterize(pageIndex, scale, 0, 0, width, height, draft, canvas -> {
+            if (disk != null && System.currentTimeMillis() - start >= MIN_RENDER_MILLIS_TO_STORE) {
+                storeLater(disk, pageIndex, dpi, canvas);
+            }
+        });
+
+        long allocated = allocatedBytes() - allocatedBefore;
+        System.out.println(String.format("✓ Rendered PDF page %d%s (%dx%d) in %dms, %s allocated",
+                pageIndex + 1, draft ? " draft" : "", width, height, System.currentTimeMillis() - start,
+                allocatedBefore >= 0 ? String.format("%.1f MB", allocated / 1048576.0) : "unknown"));
+        return image;
+    }
+
+    /**
+     * Draw a region of a page, in pixels at the given scale, onto a pooled
+     * canvas and copy it into a JavaFX image. The canvas is passed to
+     * onRendered, if given, before it goes back to the pool.
+     */
+    private Image rasterize(int pageIndex, float scale, int x, int y, int width, int height,
+                            boolean draft, Consumer<BufferedImage> onRendered) throws IOException {
+        BufferedImage canvas = rasters.borrowCanvas(width, height);
+        try {
+            Graphics2D g = canvas.createGraphics();
+            try {
+                g.setBackground(Color.WHITE);
+                g.clearRect(0, 0, width, height);
+                // Drawing outside the canvas is clipped away, so only the region is rasterized
+                g.translate(-x, -y);
+                engine.renderToGraphics(pageIndex, g, scale, draft);
+            } finally {
+                g.dispose();
+            }
+            Image image = rasters.toFxImage(canvas);
+            if (onRendered != null) {
+                onRendered.accept(canvas);
+            }
+            return image;
+        } finally {
+            rasters.returnCanvas(canvas);
+        }
+    }
+
+    /**
+     * Store a copy of a rendered page on the store thread, so encoding it
+     * doesn't hold up showing the page
+     */
+    private void storeLater(PdfPageDiskCache disk, int pageIndex, float dpi, BufferedImage canvas) {
+        if (closed || pendingStores.incrementAndGet() > MAX_PENDING_STORES) {
+            pendingStores.decrementAndGet();
+            return;
+        }
+
+        BufferedImage copy = rasters.borrowCanvas(canvas.getWidth(), canvas.getHeight());
+        int[] from = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+        int[] to = ((DataBufferInt) copy.getRaster().getDataBuffer()).getData();
+        System.arraycopy(from, 0, to, 0, from.length);
+        try {
+            storeExecutor.execute(() -> {
+                try {
+                    long start = System.currentTimeMillis();
+                    disk.store(pageIndex, dpi, copy);
+                    System.out.println("✓ Stored PDF page " + (pageIndex + 1) + " in disk cache in "
+                            + (System.currentTimeMillis() - start) + "ms");
+                } finally {
+                    rasters.returnCanvas(copy);
+                    pendingStores.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile
+            rasters.returnCanvas(copy);
+            pendingStores.decrementAndGet();
+        }
+    }
+
+    /**
+     * Hand back a page image that is no longer cached or displayed, so its
+     * pixels can be reused for another page
+     */
+    public void recycle(Image image) {
+        rasters.recycle(image);
+    }
+
+    /**
+     * Get a tile if it is cached, or null
+     */
+    public synchronized Image getCachedTile(TileKey key) {
+        return tileCache.get(key);
+    }
+
+    /**
+     * Render a tile in the background. onReady is called on the FX thread
+     * once it is rendered; stillWanted is checked before rendering starts so
+     * tiles scrolled out of view are skipped.
+     */
+    public void requestTile(TileKey key, BooleanSupplier stillWanted, Consumer<Image> onReady) {
+        synchronized (this) {
+            if (closed || !pending.add(key)) return;
+        }
+
+        executor.execute(() -> {
+            Image image = null;
+            try {
+                Image cached = getCachedTile(key);
+                if (cached != null) {
+                    image = cached;
+                } else if (!closed && stillWanted.getAsBoolean()) {
+                    image = renderTile(key);
+                    putTile(key, image);
+                }
+            } catch (Exception e) {
+                System.err.println("✗ Error rendering PDF tile: " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    pending.remove(key);
+                }
+            }
+
+            if (image != null) {
+                Image ready = image;
+                Platform.runLater(() -> onReady.accept(ready));
+            }
+        });
+    }
+
+    private Image renderTile(TileKey key) throws IOException {
+        float[] size = getPageSize(key.pageIndex);
+        float scale = key.getScale();
+        int pageWidth = (int) Math.ceil(size[0] * scale);
+        int pageHeight = (int) Math.ceil(size[1] * scale);
+        int x = key.column * TILE_SIZE;
+        int y = key.row * TILE_SIZE;
+        int width = Math.min(TILE_SIZE, pageWidth - x);
+        int height = Math.min(TILE_SIZE, pageHeight - y);
+        return rasterize(key.pageIndex, scale, x, y, width, height, false, null);
+    }
+
+    private synchronized void putTile(TileKey key, Image image) {
+        Image previous = tileCache.put(key, image);
+        if (previous != null) {
+            cachedBytes -= sizeOf(previous);
+        }
+        cachedBytes += sizeOf(image);
+
+        Iterator<Map.Entry<TileKey, Image>> it = tileCache.entrySet().iterator();
+        while (cachedBytes > TILE_CACHE_BYTES && it.hasNext()) {
+            Map.Entry<TileKey, Image> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            cachedBytes -= sizeOf(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * Stop rendering and drop cached tiles
+     */
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        // Let queued pages finish storing; they no longer need the document
+        storeExecutor.shutdown();
+        engine.close();
+        System.out.println("→ PDF raster pool: " + rasters.getStats());
+        rasters.clear();
+        synchronized (this) {
+            tileCache.clear();
+            pending.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or -1 if the JVM can't tell
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+}
@@ -0,0 +1,139 @@
+package com.ebook.reader.util;
+
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Decoded cover thumbnails for the library grid.
+ *
+ * Covers are decoded in the background at the size they are displayed at,
+ * not at their full resolution, and kept in a least recently used cache with
+ * a byte budget. All methods must be called on the FX thread.
+ */
+public class CoverImageCache {
+
+    private static final long DEFAULT_BUDGET_BYTES = 48L * 1024 * 1024;
+
+    private static CoverImageCache instance;
+
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Image> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes = 0;
+
+    private CoverImageCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public static CoverImageCache getInstance() {
+        if (instance == null) {
+            instance = new CoverImageCache(DEFAULT_BUDGET_BYTES);
+        }
+        return instance;
+    }
+
+    /**
+     * Get a decoded cover if it is cached, or null
+     */
+    public Image getCached(String coverPath, double width, double height) {
+        return cache.get(key(coverPath, width, height));
+    }
+
+    /**
+     * Decode a cover at the given size in the background. onLoaded is called
+     * on the FX thread with the image, or with null if it could not be
+     * decoded. Returns the loading image so the caller can cancel it.
+     */
+    public Image load(String coverPath, double width, double height, Consumer<Image> onLoaded) {
+        return load(coverPath, coverPath, width, height, onLoaded);
+    }
+
+    /**
+     * Like load, but decodes sourcePath (e.g. a thumbnail of the cover) while
+     * caching the result under the cover's path
+     */
+    public Image load(String coverPath, String sourcePath, double width, double height, Consumer<Image> onLoaded) {
+        String key = key(coverPath, width, height);
+
+        Image cached = cache.get(key);
+        if (cached != null) {
+            onLoaded.accept(cached);
+            return cached;
+        }
+
+        String url = new File(sourcePath).toURI().toString();
+        Image image = new Image(url, width, height, false, true, true);
+        boolean[] finished = {false};
+
+        image.progressProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal.doubleValue() >= 1.0) {
+                finishLoad(key, image, finished, onLoaded);
+            }
+        });
+        image.errorProperty().addListener((obs, oldVal, isError) -> {
+            if (isError) {
+                finishLoad(key, image, finished, onLoaded);
+            }
+        });
+
+        return image;
+    }
+
+    private void finishLoad(String key, Image image, boolean[] finished, Consumer<Image> onLoaded) {
+        if (finished[0]) return;
+        finished[0] = true;
+
+        if (image.isError() || image.getWidth() <= 0) {
+            onLoaded.accept(null);
+            return;
+        }
+
+        put(key, image);
+        onLoaded.accept(image);
+    }
+
+    private void put(String key, Image image) {
+        Image previous = cache.put(key, image);
+        if (previous != null) {
+            cachedBytes -= sizeOf(previous);
+        }
+        cachedBytes += sizeOf(image);
+
+        Iterator<Map.Entry<String, Image>> it = cache.entrySet().iterator();
+        while (cachedBytes > budgetBytes && cache.size() > 1 && it.hasNext()) {
+            Map.Entry<String, Image> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            cachedBytes -= sizeOf(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * Forget all decoded versions of a cover, e.g. after the book was deleted
+     */
+    public void invalidate(String coverPath) {
+        String prefix = coverPath + "@";
+        Iterator<Map.Entry<String, Image>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Image> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                cachedBytes -= sizeOf(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    private static String key(String coverPath, double width, double height) {
+        return coverPath + "@" + (int) width + "x" + (int) height;
+    }
+
+    private static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+}
@@ -0,0 +1,213 @@
+package com.ebook.reader.util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small fixed-size JPEG thumbnails of book covers.
+ *
+ * Thumbnails are written next to the full-size cover, once at the library
+ * grid size and once at twice that size for HiDPI screens, so the grid never
+ * has to read and decode full-size covers.
+ */
+public class CoverThumbnails {
+
+    public static final int THUMB_WIDTH = 150;
+    public static final int THUMB_HEIGHT = 215;
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    // Covers that can't be decoded; they would fail again on every attempt
+    private static final Set<String> undecodableCovers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * File name, without extension, for the extracted cover of a book. The
+     * content fingerprint keeps books with the same title from sharing, and
+     * overwriting, one cover file.
+     */
+    public static String coverBaseName(String bookTitle, File bookFile) throws IOException {
+        String safeTitle = bookTitle.replaceAll("[^a-zA-Z0-9.-]", "_");
+        if (safeTitle.length() > 50) {
+            safeTitle = safeTitle.substring(0, 50);
+        }
+        return safeTitle + "_" + FileFingerprint.computeContent(bookFile).substring(0, 12) + "_cover";
+    }
+
+    /**
+     * Path of the thumbnail for a cover, at 1x or 2x the grid size
+     */
+    public static String thumbnailPath(String coverPath, boolean hiDpi) {
+        String base = coverPath;
+        int lastDot = base.lastIndexOf('.');
+        if (lastDot > base.lastIndexOf(File.separatorChar)) {
+            base = base.substring(0, lastDot);
+        }
+        return base + (hiDpi ? "_thumb@2x.jpg" : "_thumb.jpg");
+    }
+
+    /**
+     * Path the grid should load for a cover: its thumbnail if one exists,
+     * otherwise the cover itself
+     */
+    public static String resolve(String coverPath, double outputScale) {
+        File thumbnail = new File(thumbnailPath(coverPath, outputScale > 1.0));
+        return thumbnail.isFile() ? thumbnail.getPath() : coverPath;
+    }
+
+    /**
+     * Generate both thumbnails for a cover file unless they are up to date.
+     * Returns false if the cover can't be decoded (e.g. SVG or WebP).
+     */
+    public static boolean generate(String coverPath) {
+        File coverFile = new File(coverPath);
+        if (isUpToDate(coverFile)) {
+            return true;
+        }
+
+        try {
+            BufferedImage cover = ImageIO.read(coverFile);
+            if (cover == null) {
+                System.err.println("⚠ No thumbnail for unsupported cover format: " + coverFile.getName());
+                undecodableCovers.add(coverPath);
+                return false;
+            }
+            return generate(coverPath, cover);
+        } catch (IOException e) {
+            System.err.println("✗ Error reading cover for thumbnail: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Generate both thumbnails from an already decoded cover
+     */
+    public static boolean generate(String coverPath, BufferedImage cover) {
+        try {
+            writeJpeg(scale(cover, THUMB_WIDTH, THUMB_HEIGHT), new File(thumbnailPath(coverPath, false)));
+            writeJpeg(scale(cover, THUMB_WIDTH * 2, THUMB_HEIGHT * 2), new File(thumbnailPath(coverPath, true)));
+            return true;
+        } catch (IOException e) {
+            System.err.println("✗ Error writing cover thumbnail: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Generate missing thumbnails, e.g. for covers imported before thumbnails
+     * existed, on a background thread. Covers that couldn't be decoded before
+     * are not tried again.
+     */
+    public static void generateMissingAsync(Collection<String> coverPaths) {
+        List<String> candidates = new ArrayList<>();
+        for (String coverPath : coverPaths) {
+            if (coverPath != null && !undecodableCovers.contains(coverPath)) {
+                candidates.add(coverPath);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Thread thread = new Thread(() -> {
+            int missing = 0;
+            int generated = 0;
+            for (String coverPath : candidates) {
+                if (new File(thumbnailPath(coverPath, true)).exists() || !new File(coverPath).isFile()) {
+                    continue;
+                }
+                missing++;
+                if (generate(coverPath)) {
+                    generated++;
+                }
+            }
+            if (missing > 0) {
+                System.out.println("✓ Generated thumbnails for " + generated + " of " + missing + " covers");
+            }
+        }, "cover-thumbnails");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Delete the thumbnails of a cover
+     */
+    public static void delete(String coverPath) {
+        new File(thumbnailPath(coverPath, false)).delete();
+        new File(thumbnailPath(coverPath, true)).delete();
+    }
+
+    private static boolean isUpToDate(File coverFile) {
+        long coverModified = coverFile.lastModified();
+        File small = new File(thumbnailPath(coverFile.getPath(), false));
+        File large = new File(thumbnailPath(coverFile.getPath(), true));
+        return small.isFile() && large.isFile()
+                && small.lastModified() >= coverModified && large.lastModified() >= coverModified;
+    }
+
+    /**
+     * Scale to the exact size the grid displays (it doesn't keep the ratio),
+     * halving in steps so large covers don't alias
+     */
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+
+            // JPEG has no alpha, so transparent covers are drawn on white
+            BufferedImage scaled = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = scaled.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, currentWidth, currentHeight);
+            g.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            g.dispose();
+            current = scaled;
+        } while (currentWidth != width || currentHeight != height);
+
+        return current;
+    }
+
+    private static void writeJpeg(BufferedImage image, File target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+
+        File temp = new File(target.getPath() + ".tmp");
+        temp.delete();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(temp)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        if (!temp.renameTo(target)) {
+            target.delete();
+            if (!temp.renameTo(target)) {
+                temp.delete();
+                throw new IOException("Could not write " + target.getName());
+            }
+        }
+    }
+}
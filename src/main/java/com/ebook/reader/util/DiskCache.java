@@ -0,0 +1,184 @@
+package com.ebook.reader.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Size-capped file cache under ~/.ebook-reader/cache/&lt;namespace&gt;.
+ *
+ * Entries are stored as &lt;namespace&gt;/&lt;group&gt;/&lt;name&gt;, where the group is
+ * normally a book fingerprint. Reads refresh the file's modification time, and
+ * once the namespace grows past its size limit the least recently used files
+ * are deleted.
+ */
+public class DiskCache {
+
+    private final File directory;
+    private final long maxBytes;
+
+    private final Object lock = new Object();
+    private long currentBytes = -1; // computed lazily on first write
+
+    public DiskCache(String namespace, long defaultMaxBytes) {
+        this.directory = new File(getCacheRoot(), namespace);
+        this.maxBytes = readMaxBytes(namespace, defaultMaxBytes);
+    }
+
+    /**
+     * Root folder shared by all caches
+     */
+    public static File getCacheRoot() {
+        String userHome = System.getProperty("user.home");
+        return new File(userHome + File.separator + ".ebook-reader" + File.separator + "cache");
+    }
+
+    /**
+     * Size limit can be overridden with -Debook.cache.&lt;namespace&gt;.maxMb=...
+     */
+    private static long readMaxBytes(String namespace, long defaultMaxBytes) {
+        String value = System.getProperty("ebook.cache." + namespace + ".maxMb");
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim()) * 1024 * 1024;
+            } catch (NumberFormatException e) {
+                System.err.println("⚠ Invalid cache size for " + namespace + ": " + value);
+            }
+        }
+        return defaultMaxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public String readString(String group, String name) {
+        byte[] data = readBytes(group, name);
+        return data != null ? new String(data, StandardCharsets.UTF_8) : null;
+    }
+
+    public void writeString(String group, String name, String content) {
+        writeBytes(group, name, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read a cached entry, or null if it is not cached
+     */
+    public byte[] readBytes(String group, String name) {
+        File file = entryFile(group, name);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            System.err.println("⚠ Could not read cache entry " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store an entry, evicting least recently used entries if over the limit
+     */
+    public void writeBytes(String group, String name, byte[] data) {
+        if (data.length > maxBytes) {
+            return;
+        }
+
+        File file = entryFile(group, name);
+        File parent = file.getParentFile();
+        if (!parent.exists()) {
+            parent.mkdirs();
+        }
+
+        try {
+            // Write to a temp file first so readers never see a partial entry
+            Path temp = Files.createTempFile(parent.toPath(), name, ".tmp");
+            Files.write(temp, data);
+
+            long previousSize = file.isFile() ? file.length() : 0;
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (lock) {
+                ensureSizeComputed();
+                currentBytes += data.length - previousSize;
+                if (currentBytes > maxBytes) {
+                    evict();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ Could not write cache entry " + file + ": " + e.getMessage());
+        }
+    }
+
+    public boolean contains(String group, String name) {
+        return entryFile(group, name).isFile();
+    }
+
+    private File entryFile(String group, String name) {
+        return new File(new File(directory, group), name);
+    }
+
+    private void ensureSizeComputed() {
+        if (currentBytes >= 0) return;
+
+        currentBytes = 0;
+        for (File file : listEntries()) {
+            currentBytes += file.length();
+        }
+    }
+
+    /**
+     * Delete oldest entries until the cache is back to 90% of its limit
+     */
+    private void evict() {
+        long target = maxBytes * 9 / 10;
+        List<File> entries = listEntries();
+        entries.sort(Comparator.comparingLong(File::lastModified));
+
+        int removed = 0;
+        for (File file : entries) {
+            if (currentBytes <= target) break;
+
+            long size = file.length();
+            if (file.delete()) {
+                currentBytes -= size;
+                removed++;
+
+                File group = file.getParentFile();
+                String[] remaining = group.list();
+                if (remaining != null && remaining.length == 0) {
+                    group.delete();
+                }
+            }
+        }
+
+        if (removed > 0) {
+            System.out.println("✓ Evicted " + removed + " cache entries from " + directory.getName());
+        }
+    }
+
+    private List<File> listEntries() {
+        List<File> files = new ArrayList<>();
+        if (!directory.isDirectory()) {
+            return files;
+        }
+
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.filter(Files::isRegularFile)
+                    .filter(p -> !p.getFileName().toString().endsWith(".tmp"))
+                    .forEach(p -> files.add(p.toFile()));
+        } catch (IOException e) {
+            System.err.println("⚠ Could not scan cache " + directory + ": " + e.getMessage());
+        }
+        return files;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ebook.reader.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Cheap content fingerprint for book files.
+ *
+ * Hashes the file size, modification time and the first and last 64 KB, so a
+ * fingerprint costs two small reads no matter how large the book is. The
+ * content variant leaves out the modification time.
+ *
+ * The middle of a large file isn't read, so an edit there that keeps the
+ * file size gives the same fingerprint. Ebook files are rarely edited in
+ * place like that: rewriting an EPUB archive or appending a PDF update
+ * changes the size. Callers that must catch every change need a full hash.
+ */
+public class FileFingerprint {
+
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    /**
+     * Compute the fingerprint as a 32-character hex string
+     */
+    public static String compute(File file) throws IOException {
+        return compute(file, true);
+    }
+
+    /**
+     * Fingerprint of the content only, so a file that was touched or copied
+     * without being changed keeps the same value
+     */
+    public static String computeContent(File file) throws IOException {
+        return compute(file, false);
+    }
+
+    private static String compute(File file, boolean includeModified) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+
+        long length = file.length();
+        ByteBuffer header = ByteBuffer.allocate(16);
+        header.putLong(length);
+        header.putLong(includeModified ? file.lastModified() : 0);
+        digest.update(header.array());
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] buffer = new byte[(int) Math.min(SAMPLE_SIZE, length)];
+            raf.readFully(buffer);
+            digest.update(buffer);
+
+            if (length > SAMPLE_SIZE) {
+                long tailStart = Math.max(SAMPLE_SIZE, length - SAMPLE_SIZE);
+                buffer = new byte[(int) (length - tailStart)];
+                raf.seek(tailStart);
+                raf.readFully(buffer);
+                digest.update(buffer);
+            }
+        }
+
+        byte[] hash = digest.digest();
+        StringBuilder hex = new StringBuilder(32);
+        for (int i = 0; i < 16; i++) {
+            hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,273 @@
+package com.ebook.reader.util;
+
+/**
+ * Single-pass rewriter for resource references in chapter HTML.
+ *
+ * One forward scan handles img src, SVG image href / xlink:href, link href and
+ * CSS url(...) inside style attributes and style elements. Unchanged text is
+ * copied in runs into one pre-sized buffer, so a chapter without resources is
+ * copied once and nothing else is allocated per tag.
+ */
+public final class HtmlResourceRewriter {
+
+    /**
+     * Maps a reference found in the HTML to its replacement URL,
+     * or returns null to leave the reference untouched.
+     */
+    @FunctionalInterface
+    public interface UrlResolver {
+        String resolve(String reference);
+    }
+
+    private static final int TAG_OTHER = 0;
+    private static final int TAG_IMG = 1;
+    private static final int TAG_IMAGE = 2;
+    private static final int TAG_LINK = 3;
+    private static final int TAG_STYLE = 4;
+    private static final int TAG_SCRIPT = 5;
+
+    private final String html;
+    private final int length;
+    private final UrlResolver resolver;
+    private StringBuilder out; // created on the first replacement
+    private int copiedUpTo = 0;
+
+    private HtmlResourceRewriter(String html, UrlResolver resolver) {
+        this.html = html;
+        this.length = html.length();
+        this.resolver = resolver;
+    }
+
+    /**
+     * Rewrite all resource references in the given HTML
+     */
+    public static String rewrite(String html, UrlResolver resolver) {
+        if (html == null || html.isEmpty()) return html;
+        return new HtmlResourceRewriter(html, resolver).run();
+    }
+
+    private String run() {
+        int pos = 0;
+        while (pos < length) {
+            int lt = html.indexOf('<', pos);
+            if (lt < 0 || lt + 1 >= length) break;
+
+            char next = html.charAt(lt + 1);
+            if (next == '!') {
+                pos = skipDeclaration(lt);
+            } else if (isNameStart(next)) {
+                pos = scanTag(lt);
+            } else {
+                pos = lt + 1;
+            }
+        }
+
+        if (out == null) {
+            return html;
+        }
+        out.append(html, copiedUpTo, length);
+        return out.toString();
+    }
+
+    /**
+     * Skip comments, CDATA sections and doctype declarations
+     */
+    private int skipDeclaration(int lt) {
+        if (html.startsWith("<!--", lt)) {
+            int end = html.indexOf("-->", lt + 4);
+            return end < 0 ? length : end + 3;
+        }
+        if (html.startsWith("<![CDATA[", lt)) {
+            int end = html.indexOf("]]>", lt + 9);
+            return end < 0 ? length : end + 3;
+        }
+        int end = html.indexOf('>', lt);
+        return end < 0 ? length : end + 1;
+    }
+
+    /**
+     * Scan one start tag and its attributes; returns the position after the tag
+     */
+    private int scanTag(int lt) {
+        int nameStart = lt + 1;
+        int pos = nameStart;
+        while (pos < length && isNameChar(html.charAt(pos))) pos++;
+        int nameEnd = pos;
+
+        int tagKind = tagKind(nameStart, nameEnd);
+
+        while (pos < length) {
+            char c = html.charAt(pos);
+            if (c == '>') {
+                pos++;
+                break;
+            }
+            if (c == '/' || Character.isWhitespace(c)) {
+                pos++;
+                continue;
+            }
+
+            // Attribute name
+            int attrStart = pos;
+            while (pos < length) {
+                c = html.charAt(pos);
+                if (c == '=' || c == '>' || c == '/' || Character.isWhitespace(c)) break;
+                pos++;
+            }
+            int attrEnd = pos;
+            if (attrEnd == attrStart) {
+                pos++;
+                continue;
+            }
+
+            while (pos < length && Character.isWhitespace(html.charAt(pos))) pos++;
+            if (pos >= length || html.charAt(pos) != '=') {
+                continue; // attribute without value
+            }
+            pos++;
+            while (pos < length && Character.isWhitespace(html.charAt(pos))) pos++;
+            if (pos >= length) break;
+
+            // Attribute value, quoted or not
+            int valueStart;
+            int valueEnd;
+            char quote = html.charAt(pos);
+            if (quote == '"' || quote == '\'') {
+                valueStart = pos + 1;
+                valueEnd = html.indexOf(quote, valueStart);
+                if (valueEnd < 0) return length;
+                pos = valueEnd + 1;
+            } else {
+                valueStart = pos;
+                while (pos < length) {
+                    c = html.charAt(pos);
+                    if (c == '>' || Character.isWhitespace(c)) break;
+                    pos++;
+                }
+                valueEnd = pos;
+            }
+
+            if (isResourceAttribute(tagKind, attrStart, attrEnd)) {
+                replaceReference(valueStart, valueEnd);
+            } else if (regionEquals(attrStart, attrEnd, "style")) {
+                rewriteCssUrls(valueStart, valueEnd);
+            }
+        }
+
+        if (tagKind == TAG_STYLE) {
+            int close = indexOfIgnoreCase("</style", pos, length);
+            int end = close < 0 ? length : close;
+            rewriteCssUrls(pos, end);
+            return end;
+        }
+        if (tagKind == TAG_SCRIPT) {
+            int close = indexOfIgnoreCase("</script", pos, length);
+            return close < 0 ? length : close;
+        }
+        return pos;
+    }
+
+    private int tagKind(int start, int end) {
+        // Ignore namespace prefixes such as svg:image
+        for (int i = start; i < end; i++) {
+            if (html.charAt(i) == ':') {
+                start = i + 1;
+                break;
+            }
+        }
+
+        if (regionEquals(start, end, "img")) return TAG_IMG;
+        if (regionEquals(start, end, "image")) return TAG_IMAGE;
+        if (regionEquals(start, end, "link")) return TAG_LINK;
+        if (regionEquals(start, end, "style")) return TAG_STYLE;
+        if (regionEquals(start, end, "script")) return TAG_SCRIPT;
+        return TAG_OTHER;
+    }
+
+    private boolean isResourceAttribute(int tagKind, int start, int end) {
+        return switch (tagKind) {
+            case TAG_IMG -> regionEquals(start, end, "src");
+            case TAG_IMAGE -> regionEquals(start, end, "href") || regionEquals(start, end, "xlink:href");
+            case TAG_LINK -> regionEquals(start, end, "href");
+            default -> false;
+        };
+    }
+
+    /**
+     * Rewrite url(...) references inside a CSS region
+     */
+    private void rewriteCssUrls(int start, int end) {
+        int pos = start;
+        while (pos < end) {
+            int url = indexOfIgnoreCase("url(", pos, end);
+            if (url < 0) return;
+
+            int valueStart = url + 4;
+            while (valueStart < end && Character.isWhitespace(html.charAt(valueStart))) valueStart++;
+            if (valueStart >= end) return;
+
+            int valueEnd;
+            char quote = html.charAt(valueStart);
+            if (quote == '"' || quote == '\'') {
+                valueStart++;
+                valueEnd = html.indexOf(quote, valueStart);
+                if (valueEnd < 0 || valueEnd > end) return;
+                pos = valueEnd + 1;
+            } else {
+                valueEnd = html.indexOf(')', valueStart);
+                if (valueEnd < 0 || valueEnd > end) return;
+                while (valueEnd > valueStart && Character.isWhitespace(html.charAt(valueEnd - 1))) valueEnd--;
+                pos = valueEnd;
+            }
+
+            replaceReference(valueStart, valueEnd);
+        }
+    }
+
+    private void replaceReference(int start, int end) {
+        if (start >= end) return;
+
+        String reference = html.substring(start, end).trim();
+        if (reference.isEmpty() || reference.startsWith("data:") || reference.startsWith("#")) {
+            return;
+        }
+
+        String replacement = resolver.resolve(reference);
+        if (replacement == null || replacement.equals(reference)) {
+            return;
+        }
+
+        if (out == null) {
+            // Resolved URLs are longer than the relative paths they replace
+            out = new StringBuilder(length + (length >> 3));
+        }
+        out.append(html, copiedUpTo, start);
+        out.append(replacement);
+        copiedUpTo = end;
+    }
+
+    private boolean regionEquals(int start, int end, String name) {
+        return end - start == name.length() && html.regionMatches(true, start, name, 0, name.length());
+    }
+
+    private int indexOfIgnoreCase(String needle, int from, int limit) {
+        char first = needle.charAt(0);
+        int last = limit - needle.length();
+        for (int i = from; i <= last; i++) {
+            char c = html.charAt(i);
+            if ((c == first || Character.toLowerCase(c) == first)
+                    && html.regionMatches(true, i, needle, 0, needle.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isNameStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isNameChar(char c) {
+        return isNameStart(c) || (c >= '0' && c <= '9') || c == ':' || c == '-' || c == '_';
+    }
+}
@@ -0,0 +1,273 @@
+package com.ebook.reader.util;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Single-pass plain-text extractor for chapter XHTML.
+ *
+ * Keeps the text of the body, decodes entities and drops script and style
+ * content. Text is kept as written, so every run of text between two tags
+ * corresponds to one DOM text node; the start offset of each run is recorded
+ * so a position in the plain text can be mapped back to a text node and an
+ * offset within it. A newline is inserted at block boundaries so words of
+ * adjacent paragraphs don't run together.
+ */
+public final class HtmlTextExtractor {
+
+    private static final Set<String> BLOCK_TAGS = Set.of(
+            "p", "div", "br", "li", "ul", "ol", "h1", "h2", "h3", "h4", "h5", "h6",
+            "tr", "td", "th", "table", "section", "article", "blockquote", "pre",
+            "hr", "dd", "dt", "dl", "figure", "figcaption", "aside", "header", "footer", "nav");
+
+    /**
+     * Plain text of a chapter and where each DOM text node starts in it
+     */
+    public static final class Result {
+        public final String text;
+        /** Start offset in text of the i-th text node of the body */
+        public final int[] nodeStarts;
+        /** Length of the i-th text node after entity decoding */
+        public final int[] nodeLengths;
+
+        public Result(String text, int[] nodeStarts, int[] nodeLengths) {
+            this.text = text;
+            this.nodeStarts = nodeStarts;
+            this.nodeLengths = nodeLengths;
+        }
+
+        /**
+         * Index of the text node containing the given text offset, or -1 if
+         * the offset falls on an inserted block separator
+         */
+        public int nodeAt(int offset) {
+            int index = Arrays.binarySearch(nodeStarts, offset);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            if (index < 0 || offset >= nodeStarts[index] + nodeLengths[index]) {
+                return -1;
+            }
+            return index;
+        }
+    }
+
+    private final String html;
+    private final int length;
+    private final StringBuilder text;
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    private int nodeCount = 0;
+
+    private HtmlTextExtractor(String html) {
+        this.html = html;
+        this.length = html.length();
+        this.text = new StringBuilder(html.length() / 2);
+    }
+
+    /**
+     * Extract the body text of a chapter
+     */
+    public static Result extract(String html) {
+        if (html == null || html.isEmpty()) {
+            return new Result("", new int[0], new int[0]);
+        }
+        return new HtmlTextExtractor(html).run();
+    }
+
+    private Result run() {
+        int pos = findBodyStart();
+
+        while (pos < length) {
+            int lt = html.indexOf('<', pos);
+            int textEnd = lt < 0 ? length : lt;
+            if (textEnd > pos) {
+                appendTextNode(pos, textEnd);
+            }
+            if (lt < 0) break;
+
+            if (html.startsWith("<!--", lt)) {
+                int end = html.indexOf("-->", lt + 4);
+                pos = end < 0 ? length : end + 3;
+            } else if (html.startsWith("<![CDATA[", lt)) {
+                int end = html.indexOf("]]>", lt + 9);
+                int cdataEnd = end < 0 ? length : end;
+                appendRaw(lt + 9, cdataEnd);
+                pos = end < 0 ? length : end + 3;
+            } else {
+                pos = handleTag(lt);
+            }
+        }
+
+        return new Result(text.toString(), Arrays.copyOf(starts, nodeCount), Arrays.copyOf(lengths, nodeCount));
+    }
+
+    /**
+     * Position just after the body start tag, or 0 for fragments without one
+     */
+    private int findBodyStart() {
+        int from = 0;
+        while (true) {
+            int index = indexOfIgnoreCase("<body", from);
+            if (index < 0) return 0;
+
+            char after = index + 5 < length ? html.charAt(index + 5) : '>';
+            if (after == '>' || after == '/' || Character.isWhitespace(after)) {
+                int end = html.indexOf('>', index);
+                return end < 0 ? length : end + 1;
+            }
+            from = index + 5;
+        }
+    }
+
+    /**
+     * Handle a tag starting at lt and return the position after it
+     */
+    private int handleTag(int lt) {
+        int end = html.indexOf('>', lt);
+        if (end < 0) return length;
+
+        boolean closing = lt + 1 < length && html.charAt(lt + 1) == '/';
+        int nameStart = closing ? lt + 2 : lt + 1;
+        int nameEnd = nameStart;
+        while (nameEnd < end && (Character.isLetterOrDigit(html.charAt(nameEnd)) || html.charAt(nameEnd) == ':')) {
+            nameEnd++;
+        }
+        if (nameEnd == nameStart) {
+            return lt + 1; // a literal '<', the parser keeps it as text
+        }
+
+        String name = html.substring(nameStart, nameEnd).toLowerCase();
+        int colon = name.indexOf(':');
+        if (colon >= 0) {
+            name = name.substring(colon + 1);
+        }
+
+        if (!closing && (name.equals("script") || name.equals("style")) && html.charAt(end - 1) != '/') {
+            int close = indexOfIgnoreCase("</" + name, end);
+            if (close < 0) return length;
+            int closeEnd = html.indexOf('>', close);
+            return closeEnd < 0 ? length : closeEnd + 1;
+        }
+
+        if (name.equals("body") && closing) {
+            return length;
+        }
+
+        if (BLOCK_TAGS.contains(name) && text.length() > 0 && text.charAt(text.length() - 1) != '\n') {
+            text.append('\n');
+        }
+        return end + 1;
+    }
+
+    private void appendTextNode(int from, int to) {
+        int start = text.length();
+        decodeInto(from, to);
+        addNode(start, text.length() - start);
+    }
+
+    private void appendRaw(int from, int to) {
+        int start = text.length();
+        text.append(html, from, to);
+        addNode(start, to - from);
+    }
+
+    private void addNode(int start, int nodeLength) {
+        if (nodeCount == starts.length) {
+            starts = Arrays.copyOf(starts, nodeCount * 2);
+            lengths = Arrays.copyOf(lengths, nodeCount * 2);
+        }
+        starts[nodeCount] = start;
+        lengths[nodeCount] = nodeLength;
+        nodeCount++;
+    }
+
+    /**
+     * Copy text, decoding character and common named entities
+     */
+    private void decodeInto(int from, int to) {
+        int pos = from;
+        while (pos < to) {
+            int amp = html.indexOf('&', pos);
+            if (amp < 0 || amp >= to) {
+                text.append(html, pos, to);
+                return;
+            }
+            text.append(html, pos, amp);
+
+            int semi = html.indexOf(';', amp);
+            if (semi < 0 || semi >= to || semi - amp > 10) {
+                text.append('&');
+                pos = amp + 1;
+                continue;
+            }
+
+            String entity = html.substring(amp + 1, semi);
+            int codePoint = decodeEntity(entity);
+            if (codePoint < 0) {
+                text.append(html, amp, semi + 1);
+            } else {
+                text.appendCodePoint(codePoint);
+            }
+            pos = semi + 1;
+        }
+    }
+
+    private static int decodeEntity(String entity) {
+        if (entity.startsWith("#x") || entity.startsWith("#X")) {
+            try {
+                return checkCodePoint(Integer.parseInt(entity.substring(2), 16));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        if (entity.startsWith("#")) {
+            try {
+                return checkCodePoint(Integer.parseInt(entity.substring(1)));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        switch (entity) {
+            case "amp": return '&';
+            case "lt": return '<';
+            case "gt": return '>';
+            case "quot": return '"';
+            case "apos": return '\'';
+            case "nbsp": return ' ';
+            case "shy": return '\u00AD';
+            case "mdash": return '—';
+            case "ndash": return '–';
+            case "hellip": return '…';
+            case "lsquo": return '‘';
+            case "rsquo": return '’';
+            case "ldquo": return '“';
+            case "rdquo": return '”';
+            default: return -1;
+        }
+    }
+
+    /**
+     * Out-of-range references are kept as literal text; NUL and surrogates
+     * become U+FFFD, as an HTML parser would decode them
+     */
+    private static int checkCodePoint(int codePoint) {
+        if (!Character.isValidCodePoint(codePoint)) {
+            return -1;
+        }
+        if (codePoint == 0 || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return '\uFFFD';
+        }
+        return codePoint;
+    }
+
+    private int indexOfIgnoreCase(String needle, int from) {
+        int last = length - needle.length();
+        for (int i = from; i <= last; i++) {
+            if (html.regionMatches(true, i, needle, 0, needle.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
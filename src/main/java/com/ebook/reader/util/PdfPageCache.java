@@ -0,0 +1,304 @@
+package com.ebook.reader.util;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Rendered pages of the open PDF, in a least recently used cache with a
+ * byte budget rather than a page count, since a page of a large-format PDF
+ * can take ten times the memory of a paperback page.
+ *
+ * When the budget is exceeded, large pages are first downgraded to a
+ * quarter-resolution preview instead of being dropped, so going back to
+ * them shows something at once while the full page is rendered again.
+ * Draft renders are kept as previews too. Previews count towards the
+ * budget and are evicted like any other entry.
+ * When the heap is nearly full the cache behaves as if its budget were
+ * halved. All methods are thread-safe.
+ *
+ * Full-resolution images that leave the cache, by eviction, downgrade or
+ * replacement, are passed to the eviction listener so their pixels can be
+ * reused. Clearing the cache doesn't notify it.
+ */
+public class PdfPageCache {
+
+    /** System property to override the default budget, in megabytes */
+    public static final String BUDGET_PROPERTY = "ebook.pdfPageCacheMB";
+
+    private static final long MAX_DEFAULT_BUDGET = 256L * 1024 * 1024;
+    private static final int PREVIEW_FACTOR = 4;
+    private static final long MIN_DOWNGRADE_BYTES = 1024L * 1024;
+    private static final double HEAP_PRESSURE_RATIO = 0.85;
+
+    private final LinkedHashMap<Integer, Entry> cache = new LinkedHashMap<>(32, 0.75f, true);
+    private long budgetBytes;
+    private long cachedBytes = 0;
+    private Consumer<Image> evictionListener;
+
+    private long hits = 0;
+    private long previewHits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long downgrades = 0;
+
+    private static class Entry {
+        final Image image;
+        final boolean preview;
+
+        Entry(Image image, boolean preview) {
+            this.image = image;
+            this.preview = preview;
+        }
+
+        long bytes() {
+            return sizeOf(image);
+        }
+    }
+
+    /**
+     * Counters since the cache was created
+     */
+    public static class Stats {
+        public long hits;
+        public long previewHits;
+        public long misses;
+        public long evictions;
+        public long downgrades;
+        public int entries;
+        public long bytes;
+        public long budgetBytes;
+
+        @Override
+        public String toString() {
+            return String.format("%d hit(s), %d preview hit(s), %d miss(es), %d eviction(s), %d downgrade(s); "
+                            + "%d page(s), %.1f of %.1f MB",
+                    hits, previewHits, misses, evictions, downgrades, entries,
+                    bytes / 1048576.0, budgetBytes / 1048576.0);
+        }
+    }
+
+    public PdfPageCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * A quarter of the heap, at most 256 MB, unless overridden with the
+     * ebook.pdfPageCacheMB system property
+     */
+    public static long defaultBudget() {
+        String configured = System.getProperty(BUDGET_PROPERTY);
+        if (configured != null) {
+            try {
+                return Long.parseLong(configured.trim()) * 1024 * 1024;
+            } catch (NumberFormatException e) {
+                System.err.println("⚠ Ignoring invalid " + BUDGET_PROPERTY + ": " + configured);
+            }
+        }
+        return Math.min(MAX_DEFAULT_BUDGET, Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    /**
+     * Called, with the cache locked, for each full-resolution image that leaves the cache
+     */
+    public synchronized void setEvictionListener(Consumer<Image> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        trim(null);
+    }
+
+    /**
+     * Full-resolution image of a page, or null if it isn't cached
+     */
+    public synchronized Image get(int pageIndex) {
+        Entry entry = cache.get(pageIndex);
+        if (entry != null && !entry.preview) {
+            hits++;
+            return entry.image;
+        }
+        if (entry != null) {
+            previewHits++;
+        } else {
+            misses++;
+        }
+        return null;
+    }
+
+    /**
+     * Low-resolution preview of a page that was downgraded, or null
+     */
+    public synchronized Image getPreview(int pageIndex) {
+        Entry entry = cache.get(pageIndex);
+        return entry != null && entry.preview ? entry.image : null;
+    }
+
+    /**
+     * Whether the full-resolution page is cached; doesn't count as a hit or miss
+     */
+    public synchronized boolean contains(int pageIndex) {
+        Entry entry = cache.get(pageIndex);
+        return entry != null && !entry.preview;
+    }
+
+    public synchronized void put(int pageIndex, Image image) {
+        if (image == null) return;
+
+        Entry previous = cache.put(pageIndex, new Entry(image, false));
+        if (previous != null) {
+            cachedBytes -= previous.bytes();
+            if (previous.image != image) {
+                evicted(previous);
+            }
+        }
+        cachedBytes += sizeOf(image);
+        trim(pageIndex);
+    }
+
+    /**
+     * Keep a low-resolution draft of a page as its preview, unless the
+     * full-resolution page is already cached
+     */
+    public synchronized void putPreview(int pageIndex, Image image) {
+        if (image == null) return;
+
+        Entry current = cache.get(pageIndex);
+        if (current != null && !current.preview) return;
+        if (current != null) {
+            cachedBytes -= current.bytes();
+        }
+        cache.put(pageIndex, new Entry(image, true));
+        cachedBytes += sizeOf(image);
+        trim(pageIndex);
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+        cachedBytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        Stats stats = new Stats();
+        stats.hits = hits;
+        stats.previewHits = previewHits;
+        stats.misses = misses;
+        stats.evictions = evictions;
+        stats.downgrades = downgrades;
+        stats.entries = cache.size();
+        stats.bytes = cachedBytes;
+        stats.budgetBytes = budgetBytes;
+        return stats;
+    }
+
+    /**
+     * Downgrade or evict least recently used pages until the cache fits
+     * its budget; the page just added is left alone
+     */
+    private void trim(Integer keep) {
+        long budget = effectiveBudget();
+        if (cachedBytes <= budget) return;
+
+        // Downgrade large pages first, oldest first
+        for (Map.Entry<Integer, Entry> mapEntry : cache.entrySet()) {
+            if (cachedBytes <= budget) return;
+            Entry entry = mapEntry.getValue();
+            if (mapEntry.getKey().equals(keep) || entry.preview || entry.bytes() < MIN_DOWNGRADE_BYTES) {
+                continue;
+            }
+
+            Image preview = downscale(entry.image, PREVIEW_FACTOR);
+            if (preview != null) {
+                mapEntry.setValue(new Entry(preview, true));
+                cachedBytes += sizeOf(preview) - entry.bytes();
+                downgrades++;
+                evicted(entry);
+            }
+        }
+
+        Iterator<Map.Entry<Integer, Entry>> it = cache.entrySet().iterator();
+        while (cachedBytes > budget && it.hasNext()) {
+            Map.Entry<Integer, Entry> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            cachedBytes -= eldest.getValue().bytes();
+            it.remove();
+            evictions++;
+            evicted(eldest.getValue());
+        }
+    }
+
+    private void evicted(Entry entry) {
+        if (evictionListener != null && !entry.preview) {
+            evictionListener.accept(entry.image);
+        }
+    }
+
+    private long effectiveBudget() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        boolean pressure = used > runtime.maxMemory() * HEAP_PRESSURE_RATIO;
+        return pressure ? budgetBytes / 2 : budgetBytes;
+    }
+
+    /**
+     * Box-filter an image down by an integer factor, reading one source
+     * row at a time so no full-size pixel copy is made
+     */
+    static Image downscale(Image image, int factor) {
+        PixelReader reader = image.getPixelReader();
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int outWidth = width / factor;
+        int outHeight = height / factor;
+        if (reader == null || outWidth <= 0 || outHeight <= 0) {
+            return null;
+        }
+
+        WritableImage preview = new WritableImage(outWidth, outHeight);
+        WritablePixelFormat<IntBuffer> format = PixelFormat.getIntArgbInstance();
+        int[] row = new int[width];
+        int[] out = new int[outWidth];
+        long[] sums = new long[outWidth * 4];
+        int samples = factor * factor;
+
+        for (int y = 0; y < outHeight; y++) {
+            Arrays.fill(sums, 0);
+            for (int dy = 0; dy < factor; dy++) {
+                reader.getPixels(0, y * factor + dy, width, 1, format, row, 0, width);
+                for (int x = 0; x < outWidth * factor; x++) {
+                    int argb = row[x];
+                    int base = (x / factor) * 4;
+                    sums[base] += argb >>> 24;
+                    sums[base + 1] += (argb >> 16) & 0xff;
+                    sums[base + 2] += (argb >> 8) & 0xff;
+                    sums[base + 3] += argb & 0xff;
+                }
+            }
+            for (int x = 0; x < outWidth; x++) {
+                int base = x * 4;
+                out[x] = (int) (sums[base] / samples) << 24
+                        | (int) (sums[base + 1] / samples) << 16
+                        | (int) (sums[base + 2] / samples) << 8
+                        | (int) (sums[base + 3] / samples);
+            }
+            preview.getPixelWriter().setPixels(0, y, outWidth, 1, format, out, 0, outWidth);
+        }
+        return preview;
+    }
+
+    private static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+}
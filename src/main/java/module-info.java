@@ -6,6 +6,7 @@ module com.ebook.reader {
     requires java.sql;
     requires org.apache.pdfbox;
     requires java.desktop;
+    requires jdk.management;
     requires jdk.jsobject;  // ✅ THÊM DÒNG NÀY
 
     opens com.ebook.reader to javafx.fxml;